@@ -0,0 +1,14 @@
+package com.github.yougitlabprojects.api;
+
+import java.io.IOException;
+
+/**
+ * Single call against GitLab REST API
+ *
+ * @param <T> type of the call result
+ */
+@FunctionalInterface
+public interface ApiCall<T> {
+
+    T call() throws IOException;
+}
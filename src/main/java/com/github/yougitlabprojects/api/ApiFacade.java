@@ -1,16 +1,21 @@
 package com.github.yougitlabprojects.api;
 
+import com.github.yougitlabprojects.api.cache.ResponseCache;
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
 import com.github.yougitlabprojects.api.dto.NamespaceDto;
+import com.github.yougitlabprojects.api.dto.NoteDto;
+import com.github.yougitlabprojects.api.dto.ProjectDto;
 import org.gitlab.api.AuthMethod;
 import org.gitlab.api.GitlabAPI;
 import org.gitlab.api.TokenType;
 import org.gitlab.api.http.GitlabHTTPRequestor;
 import org.gitlab.api.models.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Facade aroud GitLab REST API
@@ -20,7 +25,16 @@ import java.util.stream.Collectors;
  */
 public class ApiFacade {
 
+    private static final Comparator<ProjectDto> PROJECT_ORDER = Comparator
+            .comparing((ProjectDto project) -> project.getNamespace() != null ? project.getNamespace().toLowerCase() : "default")
+            .thenComparing(project -> project.getName().toLowerCase());
+
     GitlabAPI api;
+    GitLabHttpClient http;
+    RequestCoalescer coalescer = new RequestCoalescer();
+    RateLimitScheduler scheduler;
+    RateLimitScheduler.Priority priority = RateLimitScheduler.Priority.INTERACTIVE;
+    File cacheDirectory;
 
     public ApiFacade() {
     }
@@ -29,17 +43,40 @@ public class ApiFacade {
         reload(host, key);
     }
 
+    /**
+     * @param cacheDirectory directory of the disk tier of the response cache, {@code null} keeps responses in memory only
+     */
+    public ApiFacade(String host, String key, File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        reload(host, key);
+    }
+
     public boolean reload(String host, String key) {
         if (host != null && key != null && !host.isEmpty() && !key.isEmpty()) {
             api = GitlabAPI.connect(host, key, TokenType.PRIVATE_TOKEN, AuthMethod.URL_PARAMETER);
             api.ignoreCertificateErrors(true);
+            coalescer = RequestCoalescer.forServer(host, key);
+            scheduler = RateLimitScheduler.forServer(host, key);
+            http = new GitLabHttpClient(host, key, ResponseCache.forServer(host, key, cacheDirectory), scheduler).withPriority(priority);
             return true;
         }
         return false;
     }
 
+    /**
+     * Marks all following calls of this facade with given priority.
+     * Background calls are throttled to stay under the rate limit of the server and yield to interactive ones.
+     */
+    public ApiFacade withPriority(RateLimitScheduler.Priority priority) {
+        this.priority = priority;
+        if (http != null) {
+            http = http.withPriority(priority);
+        }
+        return this;
+    }
+
     public GitlabSession getSession() throws IOException {
-        return api.getCurrentSession();
+        return coalesce("session", () -> http.get("/user", GitlabSession.class));
     }
 
     private void checkApi() throws IOException {
@@ -49,19 +86,42 @@ public class ApiFacade {
     }
 
     public List<NamespaceDto> getNamespaces() throws IOException {
-        return api.retrieve().getAll("/namespaces", NamespaceDto[].class);
+        return coalesceList("namespaces", () -> {
+            List<NamespaceDto> namespaces = new ArrayList<>();
+            streamNamespaces(namespaces::add);
+            return namespaces;
+        });
     }
 
-    public List<GitlabMergeRequest> getMergeRequests(GitlabProject project) throws IOException {
-        return api.getOpenMergeRequests(project);
+    public void streamNamespaces(Consumer<NamespaceDto> consumer) throws IOException {
+        http.stream("/namespaces", JsonElementReader.NAMESPACE, consumer);
     }
 
-    public List<GitlabNote> getMergeRequestComments(GitlabMergeRequest mergeRequest) throws IOException {
-        return api.getNotes(mergeRequest);
+    public List<MergeRequestDto> getMergeRequests(GitlabProject project) throws IOException {
+        String tailUrl = GitlabProject.URL + "/" + project.getId() + GitlabMergeRequest.URL + "?state=opened";
+        return coalesceList("merge_requests:" + project.getId(), () -> {
+            List<MergeRequestDto> mergeRequests = new ArrayList<>();
+            http.stream(tailUrl, JsonElementReader.MERGE_REQUEST, mergeRequests::add);
+            return mergeRequests;
+        });
     }
 
-    public void addComment(GitlabMergeRequest mergeRequest, String body) throws IOException {
-        api.createNote(mergeRequest, body);
+    public List<NoteDto> getMergeRequestComments(MergeRequestDto mergeRequest) throws IOException {
+        String tailUrl = notesUrl(mergeRequest);
+        return coalesceList(tailUrl, () -> {
+            List<NoteDto> notes = new ArrayList<>();
+            http.stream(tailUrl, JsonElementReader.NOTE, notes::add);
+            return notes;
+        });
+    }
+
+    public void addComment(MergeRequestDto mergeRequest, String body) throws IOException {
+        String tailUrl = notesUrl(mergeRequest);
+        send(() -> api.dispatch().with("body", body).to(tailUrl, GitlabNote.class));
+    }
+
+    private static String notesUrl(MergeRequestDto mergeRequest) {
+        return GitlabProject.URL + "/" + mergeRequest.getProjectId() + GitlabMergeRequest.URL + "/" + mergeRequest.getIid() + "/notes";
     }
 
     public GitlabMergeRequest createMergeRequest(GitlabProject project, GitlabUser assignee, String from, String to, String title, String description, boolean removeSourceBranch) throws IOException {
@@ -78,19 +138,19 @@ public class ApiFacade {
             requestor.with("assignee_id", assignee.getId());
         }
 
-        return requestor.to(tailUrl, GitlabMergeRequest.class);
+        return send(() -> requestor.to(tailUrl, GitlabMergeRequest.class));
     }
 
-    public void acceptMergeRequest(GitlabProject project, GitlabMergeRequest mergeRequest) throws IOException {
-        api.acceptMergeRequest(project, mergeRequest.getIid(), null);
+    public void acceptMergeRequest(GitlabProject project, MergeRequestDto mergeRequest) throws IOException {
+        send(() -> api.acceptMergeRequest(project, mergeRequest.getIid(), null));
     }
 
-    public void changeAssignee(GitlabProject project, GitlabMergeRequest mergeRequest, GitlabUser user) throws IOException {
-        api.updateMergeRequest(project.getId(), mergeRequest.getIid(), null, user.getId(), null, null, null, null);
+    public void changeAssignee(GitlabProject project, MergeRequestDto mergeRequest, GitlabUser user) throws IOException {
+        send(() -> api.updateMergeRequest(project.getId(), mergeRequest.getIid(), null, user.getId(), null, null, null, null));
     }
 
     public GitlabProject createProject(String name, String visibilityLevel, boolean isPublic, NamespaceDto namespace, String description) throws IOException {
-        return api.createProject(
+        return send(() -> api.createProject(
                 name,
                 namespace != null && namespace.getId() != 0 ? namespace.getId() : null,
                 description,
@@ -102,43 +162,44 @@ public class ApiFacade {
                 isPublic,
                 visibilityLevel,
                 null
-        );
+        ));
     }
 
     public GitlabProject getProject(Integer id) throws IOException {
-        return api.getProject(id);
+        return coalesce("project:" + id, () -> http.get(GitlabProject.URL + "/" + id, GitlabProject.class));
     }
 
     public List<GitlabBranch> loadProjectBranches(GitlabProject gitlabProject) throws IOException {
-        return api.getBranches(gitlabProject);
+        return coalesceList("branches:" + gitlabProject.getId(), () -> http.getAll(GitlabProject.URL + "/" + gitlabProject.getId() + "/repository/branches", GitlabBranch[].class));
     }
 
-    public Collection<GitlabProject> getProjects() throws Throwable {
+    /**
+     * Streams only names of the branches, full branch models are never created
+     */
+    public void streamProjectBranchNames(GitlabProject gitlabProject, Consumer<String> consumer) throws IOException {
+        http.stream(GitlabProject.URL + "/" + gitlabProject.getId() + "/repository/branches", JsonElementReader.BRANCH_NAME, consumer);
+    }
+
+    /**
+     * Streams active projects the user is member of as compact {@link ProjectDto}s, pages are decoded one element at a time.
+     * Server is asked for the simple project representation which carries only the fields of the DTO.
+     */
+    public void streamProjects(Consumer<ProjectDto> consumer) throws IOException {
         checkApi();
+        http.stream(GitlabProject.URL + "?membership=true&archived=false&simple=true", JsonElementReader.ACTIVE_PROJECT, consumer);
+    }
 
-        SortedSet<GitlabProject> result = new TreeSet<>(new Comparator<GitlabProject>() {
-            @Override
-            public int compare(GitlabProject o1, GitlabProject o2) {
-                GitlabNamespace namespace1 = o1.getNamespace();
-                String n1 = namespace1 != null ? namespace1.getName().toLowerCase() : "Default";
-                GitlabNamespace namespace2 = o2.getNamespace();
-                String n2 = namespace2 != null ? namespace2.getName().toLowerCase() : "Default";
-
-                int compareNamespace = n1.compareTo(n2);
-                return compareNamespace != 0 ? compareNamespace : o1.getName().toLowerCase().compareTo(o2.getName().toLowerCase());
-            }
+    /**
+     * @return active projects the user is member of sorted by namespace and name
+     */
+    public Collection<ProjectDto> getProjects() throws IOException {
+        checkApi();
+        return coalesceList("membership_projects", () -> {
+            List<ProjectDto> projects = new ArrayList<>();
+            streamProjects(projects::add);
+            projects.sort(PROJECT_ORDER);
+            return projects;
         });
-
-        List<GitlabProject> projects;
-        try {
-            projects = api.getMembershipProjects();
-        } catch (Throwable e) {
-            projects = Collections.emptyList();
-        }
-        projects = projects.stream().filter(project -> !Boolean.TRUE.equals(project.isArchived())).collect(Collectors.toList());
-        result.addAll(projects);
-
-        return result;
     }
 
     public Collection<GitlabUser> searchUsers(GitlabProject project, String text) throws IOException {
@@ -146,14 +207,68 @@ public class ApiFacade {
         List<GitlabUser> users = new ArrayList<>();
         if (text != null) {
             String tailUrl = GitlabProject.URL + "/" + project.getId() + "/users" + "?search=" + URLEncoder.encode(text, "UTF-8");
-            GitlabUser[] response = api.retrieve().to(tailUrl, GitlabUser[].class);
-            users = Arrays.asList(response);
+            users = coalesceList(tailUrl, () -> Arrays.asList(http.get(tailUrl, GitlabUser[].class)));
         }
         return users;
     }
 
     public GitlabUser getCurrentUser() throws IOException {
         checkApi();
-        return api.getUser();
+        return coalesce("user", () -> http.get("/user", GitlabUser.class));
+    }
+
+    /**
+     * @return asynchronous view of this facade running calls on a bounded I/O executor
+     */
+    public AsyncApiFacade async() {
+        return new AsyncApiFacade(this);
+    }
+
+    /**
+     * Background calls are not shared with interactive ones so a throttled call never delays the user
+     */
+    private <T> T coalesce(String requestKey, ApiCall<T> call) throws IOException {
+        return coalescer.execute(priority == RateLimitScheduler.Priority.BACKGROUND ? "background:" + requestKey : requestKey, call);
+    }
+
+    /**
+     * Coalesced callers share one result, so lists are handed out read-only
+     */
+    private <T> List<T> coalesceList(String requestKey, ApiCall<List<T>> call) throws IOException {
+        return coalesce(requestKey, () -> Collections.unmodifiableList(call.call()));
+    }
+
+    /**
+     * Modifying calls go through java-gitlab-api, they only wait for their turn in the scheduler.
+     * They are not idempotent so they are never retried, but they fail fast while the server is unreachable.
+     */
+    private <T> T send(ApiCall<T> call) throws IOException {
+        scheduler.acquire(priority);
+        try {
+            return http.getCircuitBreaker().execute(call);
+        } finally {
+            scheduler.release(priority);
+        }
+    }
+
+    /**
+     * @return single-flight layer shared by all facades of this server, exposes counters of saved calls
+     */
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * @return ETag revalidated response cache of this server and token
+     */
+    public ResponseCache getResponseCache() {
+        return http != null ? http.getCache() : null;
+    }
+
+    /**
+     * @return rate limit aware scheduler of this server and token
+     */
+    public RateLimitScheduler getScheduler() {
+        return scheduler;
     }
 }
@@ -0,0 +1,158 @@
+package com.github.yougitlabprojects.api;
+
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
+import com.github.yougitlabprojects.api.dto.NamespaceDto;
+import com.github.yougitlabprojects.api.dto.NoteDto;
+import com.github.yougitlabprojects.api.dto.ProjectDto;
+import org.gitlab.api.models.*;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous variant of {@link ApiFacade}.
+ * Every call runs on a dedicated bounded I/O executor, so callers can run requests in parallel and compose the results.
+ * Failures of a call complete its future exceptionally with the original exception.
+ * Cancelling a returned future skips a call still waiting in the queue and interrupts the I/O thread of a running one,
+ * a blocking socket read ignores the interrupt though and only ends with the read timeout, its result is discarded.
+ */
+public class AsyncApiFacade {
+
+    private static final int THREADS = 4;
+    private static final int QUEUE_CAPACITY = 128;
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private final ApiFacade facade;
+    private final ExecutorService executor;
+
+    public AsyncApiFacade(ApiFacade facade) {
+        this(facade, EXECUTOR);
+    }
+
+    AsyncApiFacade(ApiFacade facade, ExecutorService executor) {
+        this.facade = facade;
+        this.executor = executor;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "GitLab API I/O " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public CompletableFuture<GitlabSession> getSession() {
+        return submit(facade::getSession);
+    }
+
+    public CompletableFuture<List<NamespaceDto>> getNamespaces() {
+        return submit(facade::getNamespaces);
+    }
+
+    public CompletableFuture<List<MergeRequestDto>> getMergeRequests(GitlabProject project) {
+        return submit(() -> facade.getMergeRequests(project));
+    }
+
+    public CompletableFuture<List<NoteDto>> getMergeRequestComments(MergeRequestDto mergeRequest) {
+        return submit(() -> facade.getMergeRequestComments(mergeRequest));
+    }
+
+    public CompletableFuture<Void> addComment(MergeRequestDto mergeRequest, String body) {
+        return submit(() -> {
+            facade.addComment(mergeRequest, body);
+            return null;
+        });
+    }
+
+    public CompletableFuture<GitlabMergeRequest> createMergeRequest(GitlabProject project, GitlabUser assignee, String from, String to, String title, String description, boolean removeSourceBranch) {
+        return submit(() -> facade.createMergeRequest(project, assignee, from, to, title, description, removeSourceBranch));
+    }
+
+    public CompletableFuture<Void> acceptMergeRequest(GitlabProject project, MergeRequestDto mergeRequest) {
+        return submit(() -> {
+            facade.acceptMergeRequest(project, mergeRequest);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> changeAssignee(GitlabProject project, MergeRequestDto mergeRequest, GitlabUser user) {
+        return submit(() -> {
+            facade.changeAssignee(project, mergeRequest, user);
+            return null;
+        });
+    }
+
+    public CompletableFuture<GitlabProject> createProject(String name, String visibilityLevel, boolean isPublic, NamespaceDto namespace, String description) {
+        return submit(() -> facade.createProject(name, visibilityLevel, isPublic, namespace, description));
+    }
+
+    public CompletableFuture<GitlabProject> getProject(Integer id) {
+        return submit(() -> facade.getProject(id));
+    }
+
+    public CompletableFuture<List<GitlabBranch>> loadProjectBranches(GitlabProject gitlabProject) {
+        return submit(() -> facade.loadProjectBranches(gitlabProject));
+    }
+
+    /**
+     * @param consumer receives branch names on the I/O thread as they are decoded
+     */
+    public CompletableFuture<Void> streamProjectBranchNames(GitlabProject gitlabProject, Consumer<String> consumer) {
+        return submit(() -> {
+            facade.streamProjectBranchNames(gitlabProject, consumer);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Collection<ProjectDto>> getProjects() {
+        return submit(facade::getProjects);
+    }
+
+    public CompletableFuture<Collection<GitlabUser>> searchUsers(GitlabProject project, String text) {
+        return submit(() -> facade.searchUsers(project, text));
+    }
+
+    public CompletableFuture<GitlabUser> getCurrentUser() {
+        return submit(facade::getCurrentUser);
+    }
+
+    <T> CompletableFuture<T> submit(ApiCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(call.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("Too many pending GitLab requests", e));
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.yougitlabprojects.api;
+
+import com.github.yougitlabprojects.exception.CircuitOpenException;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker of one GitLab server.
+ * After repeated server or network failures all calls fail fast until a background probe finds the server reachable again.
+ */
+public class CircuitBreaker {
+
+    private static final Map<String, CircuitBreaker> SERVERS = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService PROBES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "GitLab server probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long INITIAL_PROBE_DELAY_MILLIS = 5_000;
+    private static final long MAX_PROBE_DELAY_MILLIS = 60_000;
+
+    public enum State {
+        CLOSED("Connected"),
+        OPEN("Unreachable, reconnecting");
+
+        private final String description;
+
+        State(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final String host;
+    private final Callable<Boolean> probe;
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long probeDelayMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    CircuitBreaker(String host, Callable<Boolean> probe) {
+        this.host = host;
+        this.probe = probe;
+    }
+
+    /**
+     * @param probe check of server reachability used while the breaker is open
+     */
+    public static CircuitBreaker forServer(String host, Callable<Boolean> probe) {
+        return SERVERS.computeIfAbsent(normalize(host), key -> new CircuitBreaker(key, probe));
+    }
+
+    /**
+     * @return state of the breaker of given server, {@link State#CLOSED} when server was not called yet
+     */
+    public static State stateOf(String host) {
+        CircuitBreaker breaker = SERVERS.get(normalize(host));
+        return breaker != null ? breaker.getState() : State.CLOSED;
+    }
+
+    private static String normalize(String host) {
+        return host.endsWith("/") ? host.substring(0, host.length() - 1) : host;
+    }
+
+    public <T> T execute(ApiCall<T> call) throws IOException {
+        if (state == State.OPEN) {
+            rejected.incrementAndGet();
+            throw new CircuitOpenException(host);
+        }
+        try {
+            T result = call.call();
+            onSuccess();
+            return result;
+        } catch (IOException e) {
+            if (isFailure(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Only an unreachable or overloaded server counts, a rejected request proves the server is up.
+     * Error responses are classified by status, no matter if they come from this plugin or from java-gitlab-api.
+     * Rate limited requests are slowed down by {@link RateLimitScheduler} and do not open the circuit.
+     */
+    static boolean isFailure(IOException e) {
+        int responseCode = RetryPolicy.responseCode(e);
+        if (responseCode > 0) {
+            return responseCode >= 500 || responseCode == 408;
+        }
+        return e instanceof UnknownHostException || RetryPolicy.isNetworkFailure(e);
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            state = State.OPEN;
+            probeDelayMillis = INITIAL_PROBE_DELAY_MILLIS;
+            scheduleProbe();
+        }
+    }
+
+    private void scheduleProbe() {
+        PROBES.schedule(this::probe, probeDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+        boolean reachable;
+        try {
+            reachable = Boolean.TRUE.equals(probe.call());
+        } catch (Exception e) {
+            reachable = false;
+        }
+        synchronized (this) {
+            if (reachable) {
+                consecutiveFailures = 0;
+                state = State.CLOSED;
+            } else {
+                probeDelayMillis = Math.min(MAX_PROBE_DELAY_MILLIS, probeDelayMillis * 2);
+                scheduleProbe();
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return number of calls that failed fast because the breaker was open
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
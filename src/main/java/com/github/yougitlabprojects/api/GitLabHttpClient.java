@@ -0,0 +1,250 @@
+package com.github.yougitlabprojects.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.yougitlabprojects.api.cache.CachedResponse;
+import com.github.yougitlabprojects.api.cache.ResponseCache;
+import com.github.yougitlabprojects.exception.GitLabApiException;
+import org.gitlab.api.GitlabAPI;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Conditional GET transport for GitLab REST API.
+ * Sends {@code If-None-Match} with stored ETag and serves the cached body when server answers 304 Not Modified.
+ * Every request passes through the {@link RateLimitScheduler} of the server with priority of this client.
+ * Requests are retried on transient failures and fail fast while the {@link CircuitBreaker} of the server is open.
+ */
+public class GitLabHttpClient {
+
+    private static final String API_NAMESPACE = "/api/v4";
+    private static final int PER_PAGE = 100;
+    private static final int MAX_RATE_LIMITED_ATTEMPTS = 3;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final String host;
+    private final String token;
+    private final ResponseCache cache;
+    private final RateLimitScheduler scheduler;
+    private final RateLimitScheduler.Priority priority;
+    private final CircuitBreaker breaker;
+
+    public GitLabHttpClient(String host, String token, ResponseCache cache, RateLimitScheduler scheduler) {
+        this.host = host.endsWith("/") ? host.substring(0, host.length() - 1) : host;
+        this.token = token;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.priority = RateLimitScheduler.Priority.INTERACTIVE;
+        this.breaker = CircuitBreaker.forServer(this.host, () -> isReachable(this.host));
+    }
+
+    private GitLabHttpClient(GitLabHttpClient client, RateLimitScheduler.Priority priority) {
+        this.host = client.host;
+        this.token = client.token;
+        this.cache = client.cache;
+        this.scheduler = client.scheduler;
+        this.priority = priority;
+        this.breaker = client.breaker;
+    }
+
+    /**
+     * @return client sharing cache and scheduler with this one, sending requests with given priority
+     */
+    public GitLabHttpClient withPriority(RateLimitScheduler.Priority priority) {
+        return new GitLabHttpClient(this, priority);
+    }
+
+    public <T> T get(String tailUrl, Class<T> type) throws IOException {
+        return GitlabAPI.MAPPER.readValue(fetch(tailUrl).getBody(), type);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getAll(String tailUrl, Class<T[]> type) throws IOException {
+        List<T> result = new ArrayList<>();
+        stream(tailUrl, JsonElementReader.of((Class<T>) type.getComponentType()), result::add);
+        return result;
+    }
+
+    /**
+     * Decodes all pages of list endpoint one element at a time and pushes the elements to consumer.
+     * Only one page is held in memory no matter how many pages the list has.
+     */
+    public <T> void stream(String tailUrl, JsonElementReader<T> reader, Consumer<? super T> consumer) throws IOException {
+        String page = "1";
+        while (page != null && !page.isEmpty()) {
+            CachedResponse response = fetch(tailUrl + (tailUrl.indexOf('?') >= 0 ? '&' : '?') + "per_page=" + PER_PAGE + "&page=" + page);
+            try (JsonParser parser = GitlabAPI.MAPPER.getFactory().createParser(response.getBody())) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("GitLab API did not return list for " + tailUrl);
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    T element = reader.read(parser);
+                    if (element != null) {
+                        consumer.accept(element);
+                    }
+                }
+            }
+            page = response.getNextPage();
+        }
+    }
+
+    private CachedResponse fetch(String tailUrl) throws IOException {
+        return RetryPolicy.IDEMPOTENT.execute(() -> breaker.execute(() -> exchange(tailUrl)));
+    }
+
+    private CachedResponse exchange(String tailUrl) throws IOException {
+        CachedResponse cached = cache.get(tailUrl);
+        for (int attempt = 1; ; attempt++) {
+            scheduler.acquire(priority);
+            try {
+                HttpURLConnection connection = open(tailUrl, cached);
+                int responseCode = connection.getResponseCode();
+                scheduler.onResponse(responseCode, connection::getHeaderField);
+                if (responseCode == RateLimitScheduler.TOO_MANY_REQUESTS && attempt < MAX_RATE_LIMITED_ATTEMPTS) {
+                    readError(connection);
+                    continue;
+                }
+                return read(tailUrl, connection, responseCode, cached);
+            } finally {
+                scheduler.release(priority);
+            }
+        }
+    }
+
+    private CachedResponse read(String tailUrl, HttpURLConnection connection, int responseCode, CachedResponse cached) throws IOException {
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            cache.notModified();
+            return cached;
+        }
+        if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            throw new GitLabApiException(responseCode + " " + readError(connection), responseCode);
+        }
+        CachedResponse response;
+        try (InputStream in = connection.getInputStream()) {
+            response = new CachedResponse(connection.getHeaderField("ETag"), connection.getHeaderField("X-Next-Page"), readAll(in));
+        }
+        if (response.getEtag() != null) {
+            cache.put(tailUrl, response);
+        }
+        return response;
+    }
+
+    private HttpURLConnection open(String tailUrl, CachedResponse cached) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(host + API_NAMESPACE + tailUrl).openConnection();
+        if (connection instanceof HttpsURLConnection) {
+            HttpsURLConnection https = (HttpsURLConnection) connection;
+            https.setSSLSocketFactory(TrustAll.SOCKET_FACTORY);
+            https.setHostnameVerifier((hostname, session) -> true);
+        }
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("PRIVATE-TOKEN", token);
+        connection.setRequestProperty("Accept", "application/json");
+        if (cached != null) {
+            connection.setRequestProperty("If-None-Match", cached.getEtag());
+        }
+        return connection;
+    }
+
+    /**
+     * Any HTTP answer, even 401 without token, means the server is up
+     */
+    private static boolean isReachable(String host) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(host + API_NAMESPACE + "/version").openConnection();
+        if (connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(TrustAll.SOCKET_FACTORY);
+            ((HttpsURLConnection) connection).setHostnameVerifier((hostname, session) -> true);
+        }
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(CONNECT_TIMEOUT_MILLIS);
+        try {
+            return connection.getResponseCode() < HttpURLConnection.HTTP_INTERNAL_ERROR;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String readError(HttpURLConnection connection) {
+        try (InputStream in = connection.getErrorStream()) {
+            if (in == null) {
+                return connection.getResponseMessage();
+            }
+            String error = new String(readAll(in), StandardCharsets.UTF_8);
+            return error.length() > 512 ? error.substring(0, 512) : error;
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    public RateLimitScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Same certificate handling as {@link GitlabAPI#ignoreCertificateErrors(boolean)} used by the facade
+     */
+    private static class TrustAll {
+
+        static final SSLSocketFactory SOCKET_FACTORY = create();
+
+        private static SSLSocketFactory create() {
+            TrustManager[] trustAll = {new X509TrustManager() {
+                @Override
+                public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
+                }
+            }};
+            try {
+                SSLContext context = SSLContext.getInstance("TLS");
+                context.init(null, trustAll, new SecureRandom());
+                return context.getSocketFactory();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.yougitlabprojects.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
+import com.github.yougitlabprojects.api.dto.NamespaceDto;
+import com.github.yougitlabprojects.api.dto.NoteDto;
+import com.github.yougitlabprojects.api.dto.ProjectDto;
+import org.gitlab.api.GitlabAPI;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Decodes one element of streamed JSON array.
+ * Reader is called with parser positioned on {@code START_OBJECT} and has to consume the object up to its {@code END_OBJECT}.
+ *
+ * @param <T> type of decoded element, {@code null} result skips the element
+ */
+@FunctionalInterface
+public interface JsonElementReader<T> {
+
+    /**
+     * Projects decoded into {@link ProjectDto}, archived projects are skipped
+     */
+    JsonElementReader<ProjectDto> ACTIVE_PROJECT = parser -> {
+        ProjectDto project = new ProjectDto();
+        boolean archived = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id":
+                    project.setId(parser.getValueAsInt());
+                    break;
+                case "name":
+                    project.setName(parser.getValueAsString());
+                    break;
+                case "namespace":
+                    project.setNamespace(intern(readName(parser)));
+                    break;
+                case "ssh_url_to_repo":
+                    project.setSshUrl(parser.getValueAsString());
+                    break;
+                case "http_url_to_repo":
+                    project.setHttpUrl(parser.getValueAsString());
+                    break;
+                case "archived":
+                    archived = value == JsonToken.VALUE_TRUE;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return archived ? null : project;
+    };
+
+    JsonElementReader<NamespaceDto> NAMESPACE = parser -> {
+        NamespaceDto namespace = new NamespaceDto();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    namespace.setId(parser.getValueAsInt());
+                    break;
+                case "path":
+                    namespace.setPath(parser.getValueAsString());
+                    break;
+                case "kind":
+                    namespace.setKind(parser.getValueAsString());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return namespace;
+    };
+
+    /**
+     * Merge request decoded into {@link MergeRequestDto}, user objects are reduced to their shared names
+     */
+    JsonElementReader<MergeRequestDto> MERGE_REQUEST = parser -> {
+        int projectId = 0;
+        int iid = 0;
+        String title = null;
+        String author = null;
+        String sourceBranch = null;
+        String targetBranch = null;
+        String assignee = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "project_id":
+                    projectId = parser.getValueAsInt();
+                    break;
+                case "iid":
+                    iid = parser.getValueAsInt();
+                    break;
+                case "title":
+                    title = parser.getValueAsString();
+                    break;
+                case "author":
+                    author = intern(readName(parser));
+                    break;
+                case "assignee":
+                    assignee = intern(readName(parser));
+                    break;
+                case "source_branch":
+                    sourceBranch = intern(parser.getValueAsString());
+                    break;
+                case "target_branch":
+                    targetBranch = intern(parser.getValueAsString());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new MergeRequestDto(projectId, iid, title, author, sourceBranch, targetBranch, assignee);
+    };
+
+    /**
+     * Comment decoded into {@link NoteDto}, author is reduced to the shared name
+     */
+    JsonElementReader<NoteDto> NOTE = parser -> {
+        String author = null;
+        Date createdAt = null;
+        String body = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "author":
+                    author = intern(readName(parser));
+                    break;
+                case "created_at":
+                    createdAt = value == JsonToken.VALUE_NULL ? null : GitlabAPI.MAPPER.readValue(parser, Date.class);
+                    break;
+                case "body":
+                    body = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new NoteDto(author, createdAt, body);
+    };
+
+    /**
+     * Only name of the branch, rest of the branch object is skipped
+     */
+    JsonElementReader<String> BRANCH_NAME = JsonElementReader::readName;
+
+    T read(JsonParser parser) throws IOException;
+
+    /**
+     * Full model decoded by the java-gitlab-api mapper
+     */
+    static <T> JsonElementReader<T> of(Class<T> type) {
+        return parser -> GitlabAPI.MAPPER.readValue(parser, type);
+    }
+
+    /**
+     * Reads {@code name} field of the current object and skips the rest
+     */
+    static String readName(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Names of namespaces, authors and branches repeat across elements, only one copy of each is kept
+     */
+    static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.yougitlabprojects.api;
+
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Central scheduler of all requests against one GitLab server and token.
+ * Follows {@code RateLimit-Remaining}, {@code RateLimit-Reset} and {@code Retry-After} response headers,
+ * lets interactive calls go first and paces background calls so they stay under the rate limit.
+ */
+public class RateLimitScheduler {
+
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    private static final Map<String, RateLimitScheduler> SERVERS = new ConcurrentHashMap<>();
+    private static final int BACKGROUND_CONCURRENCY = 2;
+    private static final int MIN_RESERVE = 5;
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 5_000;
+    private static final long MAX_BACKGROUND_WAIT_MILLIS = 60_000;
+    private static final long RECHECK_MILLIS = 250;
+
+    public enum Priority {
+        /**
+         * User is waiting for the result
+         */
+        INTERACTIVE,
+        /**
+         * Catalog sync, polling and other work nobody is waiting for
+         */
+        BACKGROUND
+    }
+
+    private final Object lock = new Object();
+    private int interactiveWaiting;
+    private int interactiveActive;
+    private int backgroundActive;
+    private long limit = -1;
+    private long remaining = -1;
+    private long resetAtMillis;
+    private long blockedUntilMillis;
+    private long nextBackgroundMillis;
+
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    private final String tokenHash;
+
+    public RateLimitScheduler() {
+        this(null);
+    }
+
+    private RateLimitScheduler(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    /**
+     * Scheduler shared by all facades talking to given server with given token, only the latest token of a server is kept
+     */
+    public static RateLimitScheduler forServer(String host, String token) {
+        String tokenHash = TokenHash.of(token);
+        return SERVERS.compute(host, (key, existing) ->
+                existing != null && tokenHash.equals(existing.tokenHash) ? existing : new RateLimitScheduler(tokenHash));
+    }
+
+    /**
+     * Forgets the scheduler of a server that was removed from the settings
+     */
+    public static void removeServer(String host) {
+        SERVERS.remove(host);
+    }
+
+    /**
+     * Blocks until request of given priority may be sent. Every acquire has to be paired with {@link #release(Priority)}.
+     */
+    public void acquire(Priority priority) throws InterruptedIOException {
+        try {
+            synchronized (lock) {
+                if (priority == Priority.INTERACTIVE) {
+                    acquireInteractive();
+                } else {
+                    acquireBackground();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for GitLab rate limit");
+        }
+    }
+
+    private void acquireInteractive() throws InterruptedException {
+        interactiveWaiting++;
+        try {
+            long now;
+            while ((now = System.currentTimeMillis()) < blockedUntilMillis) {
+                lock.wait(blockedUntilMillis - now);
+            }
+        } finally {
+            interactiveWaiting--;
+        }
+        interactiveActive++;
+    }
+
+    private void acquireBackground() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + MAX_BACKGROUND_WAIT_MILLIS;
+        boolean delayed = false;
+        while (true) {
+            long now = System.currentTimeMillis();
+            long delay = backgroundDelay(now);
+            if (delay <= 0) {
+                break;
+            }
+            if (now >= deadline && blockedUntilMillis <= now && backgroundActive < BACKGROUND_CONCURRENCY) {
+                // do not starve background work forever behind interactive calls
+                break;
+            }
+            delayed = true;
+            lock.wait(delay);
+        }
+        if (delayed) {
+            throttled.incrementAndGet();
+        }
+        backgroundActive++;
+        nextBackgroundMillis = System.currentTimeMillis() + pacingInterval(System.currentTimeMillis());
+    }
+
+    private long backgroundDelay(long now) {
+        if (blockedUntilMillis > now) {
+            return blockedUntilMillis - now;
+        }
+        if (interactiveWaiting > 0 || interactiveActive > 0 || backgroundActive >= BACKGROUND_CONCURRENCY) {
+            return RECHECK_MILLIS;
+        }
+        if (remaining >= 0 && remaining <= reserve() && resetAtMillis > now) {
+            return resetAtMillis - now;
+        }
+        return Math.max(0, nextBackgroundMillis - now);
+    }
+
+    /**
+     * Spreads remaining budget above the reserve evenly until the limit resets
+     */
+    private long pacingInterval(long now) {
+        if (remaining < 0 || resetAtMillis <= now) {
+            return 0;
+        }
+        long budget = remaining - reserve();
+        return budget > 0 ? (resetAtMillis - now) / budget : resetAtMillis - now;
+    }
+
+    /**
+     * Part of the budget kept for interactive calls only
+     */
+    private long reserve() {
+        return Math.max(MIN_RESERVE, limit / 10);
+    }
+
+    public void release(Priority priority) {
+        synchronized (lock) {
+            if (priority == Priority.INTERACTIVE) {
+                interactiveActive--;
+            } else {
+                backgroundActive--;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Updates known rate limit state from response of any request
+     *
+     * @param headers response header lookup
+     */
+    public void onResponse(int responseCode, Function<String, String> headers) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            long headerLimit = parseLong(headers.apply("RateLimit-Limit"));
+            if (headerLimit >= 0) {
+                limit = headerLimit;
+            }
+            long headerRemaining = parseLong(headers.apply("RateLimit-Remaining"));
+            if (headerRemaining >= 0) {
+                remaining = headerRemaining;
+            }
+            long reset = parseLong(headers.apply("RateLimit-Reset"));
+            if (reset >= 0) {
+                resetAtMillis = reset * 1000;
+            }
+            if (responseCode == TOO_MANY_REQUESTS) {
+                rateLimited.incrementAndGet();
+                remaining = 0;
+                blockedUntilMillis = Math.max(blockedUntilMillis, now + retryAfterMillis(headers.apply("Retry-After"), now));
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private long retryAfterMillis(String retryAfter, long now) {
+        if (retryAfter != null) {
+            long seconds = parseLong(retryAfter);
+            if (seconds >= 0) {
+                return seconds * 1000;
+            }
+            try {
+                return Math.max(0, ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - now);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        return resetAtMillis > now ? resetAtMillis - now : DEFAULT_RETRY_AFTER_MILLIS;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return last known remaining request budget, -1 when server did not report it yet
+     */
+    public long getRemaining() {
+        synchronized (lock) {
+            return remaining;
+        }
+    }
+
+    /**
+     * @return number of 429 Too Many Requests responses received
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    /**
+     * @return number of background requests delayed by the scheduler
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.yougitlabprojects.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight layer for GitLab GET requests.
+ * Concurrent identical requests against one server share a single in-flight call and all receive its result.
+ */
+public class RequestCoalescer {
+
+    private static final Map<String, RequestCoalescer> SERVERS = new ConcurrentHashMap<>();
+
+    private final String tokenHash;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public RequestCoalescer() {
+        this(null);
+    }
+
+    private RequestCoalescer(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
+    /**
+     * Coalescer shared by all facades talking to given server with given token.
+     * Only the coalescer of the latest token of a server is kept, so requests made with different tokens are never shared
+     * and the token itself is not retained.
+     */
+    public static RequestCoalescer forServer(String host, String token) {
+        String tokenHash = TokenHash.of(token);
+        return SERVERS.compute(host, (key, existing) ->
+                existing != null && tokenHash.equals(existing.tokenHash) ? existing : new RequestCoalescer(tokenHash));
+    }
+
+    /**
+     * Forgets the coalescer of a server that was removed from the settings
+     */
+    public static void removeServer(String host) {
+        SERVERS.remove(host);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String requestKey, ApiCall<T> call) throws IOException {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(requestKey, created);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return (T) await(running);
+        }
+
+        executed.incrementAndGet();
+        T result;
+        try {
+            result = call.call();
+        } catch (IOException | RuntimeException | Error e) {
+            inFlight.remove(requestKey, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(requestKey, created);
+        created.complete(result);
+        return result;
+    }
+
+    private Object await(CompletableFuture<Object> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for GitLab response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * @return number of requests that actually hit the server
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return number of requests that were saved by joining an in-flight call
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.yougitlabprojects.api;
+
+import com.github.yougitlabprojects.exception.GitLabApiException;
+import org.gitlab.api.GitlabAPIException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Jittered exponential retries of idempotent GitLab calls
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy IDEMPOTENT = new RetryPolicy(3, 250, 4_000);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public <T> T execute(ApiCall<T> call) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                sleep(delay(attempt));
+            }
+        }
+    }
+
+    /**
+     * Delay drawn uniformly from upper half of exponentially growing window, so concurrent clients do not retry in lockstep
+     */
+    long delay(int attempt) {
+        long window = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return window / 2 + ThreadLocalRandom.current().nextLong(window / 2 + 1);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry GitLab request");
+        }
+    }
+
+    /**
+     * @return true for failures caused by the server or network that may pass on their own
+     */
+    public static boolean isTransient(IOException e) {
+        int responseCode = responseCode(e);
+        if (responseCode > 0) {
+            return responseCode >= 500 || responseCode == 408;
+        }
+        return isNetworkFailure(e);
+    }
+
+    /**
+     * @return true when the server did not answer at all, connection refused, reset or timed out
+     */
+    static boolean isNetworkFailure(IOException e) {
+        return e instanceof SocketException || e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * @return HTTP status of an error response, of this plugin or of java-gitlab-api, -1 when there was no response
+     */
+    static int responseCode(IOException e) {
+        if (e instanceof GitLabApiException) {
+            return ((GitLabApiException) e).getResponseCode();
+        }
+        if (e instanceof GitlabAPIException) {
+            return ((GitlabAPIException) e).getResponseCode();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.yougitlabprojects.api.cache;
+
+/**
+ * Body of one GitLab GET response together with the headers needed to revalidate and page it
+ */
+public class CachedResponse {
+
+    private final String etag;
+    private final String nextPage;
+    private final byte[] body;
+
+    public CachedResponse(String etag, String nextPage, byte[] body) {
+        this.etag = etag;
+        this.nextPage = nextPage;
+        this.body = body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getNextPage() {
+        return nextPage;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int size() {
+        return body.length;
+    }
+}
@@ -0,0 +1,274 @@
+package com.github.yougitlabprojects.api.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of GitLab GET responses revalidated by ETag.
+ * One instance per server and token, so cached data of one user is never visible with a different token.
+ * Responses are kept in a bounded LRU memory tier and, when a directory is given, in a size capped disk tier.
+ */
+public class ResponseCache {
+
+    private static final long MEMORY_LIMIT_BYTES = 8L * 1024 * 1024;
+    private static final long DISK_LIMIT_BYTES = 64L * 1024 * 1024;
+    private static final Map<String, ResponseCache> PARTITIONS = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<String, CachedResponse> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final String partition;
+    private final long diskLimitBytes;
+    private long memoryBytes;
+    private volatile File diskDirectory;
+    private final Object diskLock = new Object();
+    // bytes in the disk directory, -1 until the directory was measured
+    private long diskBytes = -1;
+
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    ResponseCache(String partition) {
+        this(partition, DISK_LIMIT_BYTES);
+    }
+
+    ResponseCache(String partition, long diskLimitBytes) {
+        this.partition = partition;
+        this.diskLimitBytes = diskLimitBytes;
+    }
+
+    /**
+     * @param cacheDirectory root of the disk tier, disk tier is disabled when {@code null}
+     */
+    public static ResponseCache forServer(String host, String token, File cacheDirectory) {
+        String partition = sha256(host + '\n' + token);
+        ResponseCache cache = PARTITIONS.computeIfAbsent(partition, ResponseCache::new);
+        cache.setCacheDirectory(cacheDirectory);
+        return cache;
+    }
+
+    void setCacheDirectory(File cacheDirectory) {
+        File directory = cacheDirectory != null ? new File(cacheDirectory, partition) : null;
+        synchronized (diskLock) {
+            if (!Objects.equals(directory, diskDirectory)) {
+                this.diskDirectory = directory;
+                this.diskBytes = -1;
+            }
+        }
+    }
+
+    public CachedResponse get(String key) {
+        synchronized (memory) {
+            CachedResponse response = memory.get(key);
+            if (response != null) {
+                return response;
+            }
+        }
+        CachedResponse response = readFromDisk(key);
+        if (response != null) {
+            putInMemory(key, response);
+        }
+        return response;
+    }
+
+    public void put(String key, CachedResponse response) {
+        stored.incrementAndGet();
+        putInMemory(key, response);
+        writeToDisk(key, response);
+    }
+
+    /**
+     * Records that server confirmed cached response is still valid
+     */
+    public void notModified() {
+        notModified.incrementAndGet();
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        synchronized (diskLock) {
+            File directory = diskDirectory;
+            File[] files = directory != null ? directory.listFiles() : null;
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            diskBytes = -1;
+        }
+    }
+
+    private void putInMemory(String key, CachedResponse response) {
+        if (response.size() > MEMORY_LIMIT_BYTES / 4) {
+            return;
+        }
+        synchronized (memory) {
+            CachedResponse previous = memory.put(key, response);
+            if (previous != null) {
+                memoryBytes -= previous.size();
+            }
+            memoryBytes += response.size();
+            Iterator<CachedResponse> eldest = memory.values().iterator();
+            while (memoryBytes > MEMORY_LIMIT_BYTES && eldest.hasNext()) {
+                memoryBytes -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private CachedResponse readFromDisk(String key) {
+        File file = diskFile(key);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            String etag = in.readUTF();
+            String nextPage = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new CachedResponse(etag, nextPage.isEmpty() ? null : nextPage, body);
+        } catch (IOException e) {
+            deleteFromDisk(file);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CachedResponse response) {
+        File file = diskFile(key);
+        if (file == null || (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeUTF(response.getEtag());
+            out.writeUTF(response.getNextPage() != null ? response.getNextPage() : "");
+            out.writeInt(response.size());
+            out.write(response.getBody());
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        temp.setReadable(false, false);
+        temp.setReadable(true, true);
+        synchronized (diskLock) {
+            long replaced = file.length();
+            if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+                temp.delete();
+            }
+            addDiskBytes(file.getParentFile(), file.length() - replaced);
+        }
+    }
+
+    private void deleteFromDisk(File file) {
+        synchronized (diskLock) {
+            long length = file.length();
+            if (file.delete()) {
+                addDiskBytes(file.getParentFile(), -length);
+            }
+        }
+    }
+
+    /**
+     * Keeps a running total of the disk tier, the directory is listed only once and when the total exceeds the limit
+     */
+    private void addDiskBytes(File directory, long delta) {
+        if (diskBytes < 0) {
+            // the first measurement already includes the change
+            diskBytes = measure(directory.listFiles());
+        } else {
+            diskBytes += delta;
+        }
+        if (diskBytes > diskLimitBytes) {
+            trimDisk(directory);
+        }
+    }
+
+    private void trimDisk(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            diskBytes = -1;
+            return;
+        }
+        long total = measure(files);
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= diskLimitBytes * 3 / 4) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+        diskBytes = total;
+    }
+
+    private static long measure(File[] files) {
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return bytes the disk tier is known to hold, -1 when not measured yet
+     */
+    long getDiskBytes() {
+        synchronized (diskLock) {
+            return diskBytes;
+        }
+    }
+
+    private File diskFile(String key) {
+        File directory = diskDirectory;
+        return directory != null ? new File(directory, sha256(key)) : null;
+    }
+
+    static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return number of requests answered by 304 Not Modified from this cache
+     */
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    /**
+     * @return number of full responses stored in this cache
+     */
+    public long getStoredCount() {
+        return stored.get();
+    }
+}
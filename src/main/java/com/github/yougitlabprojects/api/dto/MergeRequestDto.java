@@ -0,0 +1,61 @@
+package com.github.yougitlabprojects.api.dto;
+
+/**
+ * Immutable DTO representing one merge request in lists, holds only fields shown or needed to act on it
+ */
+public final class MergeRequestDto {
+
+    private final int projectId;
+    private final int iid;
+    private final String title;
+    private final String authorName;
+    private final String sourceBranch;
+    private final String targetBranch;
+    private final String assigneeName;
+
+    public MergeRequestDto(int projectId, int iid, String title, String authorName, String sourceBranch, String targetBranch, String assigneeName) {
+        this.projectId = projectId;
+        this.iid = iid;
+        this.title = title;
+        this.authorName = authorName;
+        this.sourceBranch = sourceBranch;
+        this.targetBranch = targetBranch;
+        this.assigneeName = assigneeName;
+    }
+
+    public int getProjectId() {
+        return projectId;
+    }
+
+    public int getIid() {
+        return iid;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public String getSourceBranch() {
+        return sourceBranch;
+    }
+
+    public String getTargetBranch() {
+        return targetBranch;
+    }
+
+    /**
+     * @return name of the assignee, {@code null} when merge request is not assigned
+     */
+    public String getAssigneeName() {
+        return assigneeName;
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
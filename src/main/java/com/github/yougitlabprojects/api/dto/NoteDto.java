@@ -0,0 +1,31 @@
+package com.github.yougitlabprojects.api.dto;
+
+import java.util.Date;
+
+/**
+ * Immutable DTO representing one comment of merge request
+ */
+public final class NoteDto {
+
+    private final String authorName;
+    private final Date createdAt;
+    private final String body;
+
+    public NoteDto(String authorName, Date createdAt, String body) {
+        this.authorName = authorName;
+        this.createdAt = createdAt;
+        this.body = body;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
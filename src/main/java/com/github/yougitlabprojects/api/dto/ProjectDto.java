@@ -9,11 +9,20 @@ import java.io.Serializable;
  * @since 10.10.2015
  */
 public class ProjectDto implements Serializable {
+    private int id;
     private String name;
     private String namespace;
     private String sshUrl;
     private String httpUrl;
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -1,5 +1,6 @@
 package com.github.yougitlabprojects.comment;
 
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
 import com.github.yougitlabprojects.configuration.SettingsState;
 import com.github.yougitlabprojects.util.GitLabUtil;
 import com.github.yougitlabprojects.util.MessageUtil;
@@ -10,7 +11,6 @@ import com.intellij.openapi.ui.ValidationInfo;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.Convertor;
 import org.apache.commons.lang.StringUtils;
-import org.gitlab.api.models.GitlabMergeRequest;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -32,9 +32,9 @@ public class AddCommentDialog extends DialogWrapper {
 
   private Project project;
   private VirtualFile file;
-  private GitlabMergeRequest mergeRequest;
+  private MergeRequestDto mergeRequest;
 
-  protected AddCommentDialog(@Nullable Project project, @NotNull GitlabMergeRequest mergeRequest, VirtualFile file) {
+  protected AddCommentDialog(@Nullable Project project, @NotNull MergeRequestDto mergeRequest, VirtualFile file) {
     super(project);
     this.project = project;
     this.mergeRequest = mergeRequest;
@@ -1,17 +1,18 @@
 package com.github.yougitlabprojects.comment;
 
+import com.github.yougitlabprojects.api.dto.NoteDto;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.github.yougitlabprojects.common.ReadOnlyTableModel;
 import git4idea.DialogManager;
-import org.gitlab.api.models.GitlabNote;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import javax.swing.table.TableModel;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -82,14 +83,15 @@ public class CommentsDialog extends DialogWrapper {
     return panel;
   }
 
-  private TableModel commentsModel(List<GitlabNote> notes) {
+  private TableModel commentsModel(List<NoteDto> notes) {
     Object[] columnNames = {"Author", "Date", "Text"};
     Object[][] data = new Object[notes.size()][columnNames.length];
     int i = 0;
+    notes = new ArrayList<>(notes);
     notes.sort((o1, o2) -> o2.getCreatedAt().compareTo(o1.getCreatedAt()));
-    for(GitlabNote mergeRequest : notes) {
+    for(NoteDto mergeRequest : notes) {
       Object[] row = new Object[columnNames.length];
-      row[0] = mergeRequest.getAuthor().getName();
+      row[0] = mergeRequest.getAuthorName();
       row[1] = mergeRequest.getCreatedAt();
       row[2] = mergeRequest.getBody();
       data[i] = row;
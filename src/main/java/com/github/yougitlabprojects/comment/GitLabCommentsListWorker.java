@@ -1,5 +1,7 @@
 package com.github.yougitlabprojects.comment;
 
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
+import com.github.yougitlabprojects.api.dto.NoteDto;
 import com.github.yougitlabprojects.configuration.SettingsState;
 import com.github.yougitlabprojects.util.GitLabUtil;
 import com.github.yougitlabprojects.util.MessageUtil;
@@ -7,8 +9,6 @@ import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.Convertor;
-import org.gitlab.api.models.GitlabMergeRequest;
-import org.gitlab.api.models.GitlabNote;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
@@ -25,34 +25,34 @@ public class GitLabCommentsListWorker {
 
   static SettingsState settingsState = SettingsState.getInstance();
 
-  GitlabMergeRequest mergeRequest;
-  List<GitlabNote> comments;
+  MergeRequestDto mergeRequest;
+  List<NoteDto> comments;
   VirtualFile file;
 
-  public GitlabMergeRequest getMergeRequest() {
+  public MergeRequestDto getMergeRequest() {
     return mergeRequest;
   }
 
-  public void setMergeRequest(GitlabMergeRequest mergeRequest) {
+  public void setMergeRequest(MergeRequestDto mergeRequest) {
     this.mergeRequest = mergeRequest;
   }
 
-  public List<GitlabNote> getComments() {
+  public List<NoteDto> getComments() {
     return comments;
   }
 
-  public void setComments(List<GitlabNote> comments) {
+  public void setComments(List<NoteDto> comments) {
     this.comments = comments;
   }
 
-  public static GitLabCommentsListWorker create(@NotNull final Project project, @NotNull final GitlabMergeRequest mergeRequest, final VirtualFile file) {
+  public static GitLabCommentsListWorker create(@NotNull final Project project, @NotNull final MergeRequestDto mergeRequest, final VirtualFile file) {
     return GitLabUtil.computeValueInModal(project, "Loading comments...", (Convertor<ProgressIndicator, GitLabCommentsListWorker>) indicator -> {
       GitLabCommentsListWorker commentsListWorker = new GitLabCommentsListWorker();
       commentsListWorker.setMergeRequest(mergeRequest);
       try {
         commentsListWorker.setComments(settingsState.api(project, file).getMergeRequestComments(mergeRequest));
       } catch (IOException e) {
-        commentsListWorker.setComments(Collections.<GitlabNote>emptyList());
+        commentsListWorker.setComments(Collections.<NoteDto>emptyList());
         MessageUtil.showErrorDialog(project, "Cannot load comments from GitLab API", "Cannot Load Comments");
       }
 
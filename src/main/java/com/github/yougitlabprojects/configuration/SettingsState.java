@@ -1,5 +1,6 @@
 package com.github.yougitlabprojects.configuration;
 
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.components.State;
@@ -8,15 +9,17 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.xmlb.XmlSerializerUtil;
 import com.github.yougitlabprojects.api.ApiFacade;
+import com.github.yougitlabprojects.api.RateLimitScheduler;
+import com.github.yougitlabprojects.api.RequestCoalescer;
 import com.github.yougitlabprojects.api.dto.ProjectDto;
 import com.github.yougitlabprojects.dto.GitlabServer;
 import com.github.yougitlabprojects.util.GitLabUtil;
 import git4idea.repo.GitRemote;
 import git4idea.repo.GitRepository;
 import lombok.SneakyThrows;
-import org.gitlab.api.models.GitlabProject;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -45,6 +48,8 @@ public class SettingsState implements PersistentStateComponent<SettingsState> {
 
     public Collection<GitlabServer> gitlabServers = new ArrayList<>();
 
+    public boolean responseDiskCache;
+
     public static SettingsState getInstance() {
         return ServiceManager.getService(SettingsState.class);
     }
@@ -92,21 +97,14 @@ public class SettingsState implements PersistentStateComponent<SettingsState> {
     }
 
     public Collection<ProjectDto> loadProjects(GitlabServer server) throws Throwable {
-        ApiFacade apiFacade = api(server);
+        ApiFacade apiFacade = api(server).withPriority(RateLimitScheduler.Priority.BACKGROUND);
 
         Collection<ProjectDto> projects = getProjects();
         if(projects == null) {
             projects = new ArrayList<>();
         }
 
-        for (GitlabProject gitlabProject : apiFacade.getProjects()) {
-            ProjectDto projectDto = new ProjectDto();
-            projectDto.setName(gitlabProject.getName());
-            projectDto.setNamespace(gitlabProject.getNamespace().getName());
-            projectDto.setHttpUrl(gitlabProject.getHttpUrl());
-            projectDto.setSshUrl(gitlabProject.getSshUrl());
-            projects.add(projectDto);
-        }
+        projects.addAll(apiFacade.getProjects());
         this.setProjects(projects);
         return projects;
 
@@ -121,7 +119,11 @@ public class SettingsState implements PersistentStateComponent<SettingsState> {
     }
 
     public ApiFacade api(GitlabServer serverDto) {
-        return new ApiFacade(serverDto.getApiUrl(), serverDto.getApiToken());
+        return new ApiFacade(serverDto.getApiUrl(), serverDto.getApiToken(), responseDiskCache ? responseCacheDirectory() : null);
+    }
+
+    private File responseCacheDirectory() {
+        return new File(PathManager.getSystemPath(), "gitlab-projects/responses");
     }
 
     //region Getters & Setters
@@ -158,6 +160,14 @@ public class SettingsState implements PersistentStateComponent<SettingsState> {
         this.projects = projects;
     }
 
+    public boolean isResponseDiskCache() {
+        return responseDiskCache;
+    }
+
+    public void setResponseDiskCache(boolean responseDiskCache) {
+        this.responseDiskCache = responseDiskCache;
+    }
+
     public Collection<GitlabServer> getGitlabServers() {
         return gitlabServers;
     }
@@ -181,7 +191,9 @@ public class SettingsState implements PersistentStateComponent<SettingsState> {
     }
 
     public void deleteServer(GitlabServer server) {
-        getGitlabServers().stream().filter(server1 -> server.getApiUrl().equals(server1.getApiUrl())).forEach(removedServer -> getGitlabServers().remove(removedServer));
+        getGitlabServers().removeIf(server1 -> server.getApiUrl().equals(server1.getApiUrl()));
+        RequestCoalescer.removeServer(server.getApiUrl());
+        RateLimitScheduler.removeServer(server.getApiUrl());
     }
     public GitlabServer currentGitlabServer(Project project, VirtualFile file) {
         GitRepository gitRepository = GitLabUtil.getGitRepository(project, file);
@@ -1,5 +1,6 @@
 package com.github.yougitlabprojects.configuration;
 
+import com.github.yougitlabprojects.api.CircuitBreaker;
 import com.github.yougitlabprojects.common.ReadOnlyTableModel;
 import com.github.yougitlabprojects.dto.GitlabServer;
 import com.intellij.openapi.options.ConfigurationException;
@@ -29,6 +30,7 @@ public class SettingsView implements SearchableConfigurable {
     private JButton addNewOneButton;
     private JButton editButton;
     private JButton deleteButton;
+    private JCheckBox responseDiskCache;
 
     public void setup() {
         addNewOneButton.addActionListener(e -> {
@@ -59,7 +61,7 @@ public class SettingsView implements SearchableConfigurable {
     }
 
     private TableModel serverModel(Collection<GitlabServer> servers) {
-        Object[] columnNames = {"", "Server", "Token", "Checkout Method"};
+        Object[] columnNames = {"", "Server", "Token", "Checkout Method", "Status"};
         Object[][] data = new Object[servers.size()][columnNames.length];
         int i = 0;
         for (GitlabServer server : servers) {
@@ -68,6 +70,7 @@ public class SettingsView implements SearchableConfigurable {
             row[1] = server.getApiUrl();
             row[2] = server.getApiToken();
             row[3] = server.getPreferredConnection().name();
+            row[4] = CircuitBreaker.stateOf(server.getApiUrl()).getDescription();
             data[i] = row;
             i++;
         }
@@ -107,12 +110,12 @@ public class SettingsView implements SearchableConfigurable {
 
     @Override
     public boolean isModified() {
-        return false;
+        return responseDiskCache.isSelected() != settingsState.isResponseDiskCache();
     }
 
     @Override
     public void apply() throws ConfigurationException {
-
+        settingsState.setResponseDiskCache(responseDiskCache.isSelected());
     }
 
     @Override
@@ -135,6 +138,7 @@ public class SettingsView implements SearchableConfigurable {
             editButton.setEnabled(true);
             deleteButton.setEnabled(true);
         });
+        responseDiskCache.setSelected(settingsState.isResponseDiskCache());
 
     }
 }
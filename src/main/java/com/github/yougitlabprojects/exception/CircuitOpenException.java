@@ -0,0 +1,13 @@
+package com.github.yougitlabprojects.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception for calls rejected without contacting the server because its circuit breaker is open
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String host) {
+        super("GitLab server " + host + " is unreachable, reconnecting in background");
+    }
+}
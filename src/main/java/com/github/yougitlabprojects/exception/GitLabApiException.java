@@ -0,0 +1,25 @@
+package com.github.yougitlabprojects.exception;
+
+import java.io.IOException;
+
+/**
+ * Exception for GitLab REST API responses with error status
+ */
+public class GitLabApiException extends IOException {
+
+    private final int responseCode;
+
+    public GitLabApiException(String message, int responseCode) {
+        super(message);
+        this.responseCode = responseCode;
+    }
+
+    public GitLabApiException(String message, int responseCode, Throwable cause) {
+        super(message, cause);
+        this.responseCode = responseCode;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.yougitlabprojects.merge.helper;
 
+import com.github.yougitlabprojects.api.RateLimitScheduler;
+import com.github.yougitlabprojects.api.dto.ProjectDto;
 import com.github.yougitlabprojects.configuration.ProjectState;
 import com.github.yougitlabprojects.configuration.SettingsState;
 import com.github.yougitlabprojects.exception.GitLabException;
@@ -21,11 +23,14 @@ public class GitLabProjectMatcher {
 
         if(projectState.getProjectId(remoteUrl) == null) {
             try {
-                Collection<GitlabProject> projects = settingsState.api(repository).getProjects();
-                for (GitlabProject gitlabProject : projects) {
-                    if (gitlabProject.getName().toLowerCase().equals(remoteProjectName.toLowerCase()) || urlMatch(remoteUrl, gitlabProject.getSshUrl()) || urlMatch(remoteUrl, gitlabProject.getHttpUrl())) {
-                        Integer projectId = gitlabProject.getId();
-                        projectState.setProjectId(remoteUrl, projectId);
+                // catalog sync of all membership projects, must not eat into the reserve of interactive calls
+                Collection<ProjectDto> projects = settingsState.api(repository)
+                        .withPriority(RateLimitScheduler.Priority.BACKGROUND)
+                        .getProjects();
+                for (ProjectDto project : projects) {
+                    if (project.getName().toLowerCase().equals(remoteProjectName.toLowerCase()) || urlMatch(remoteUrl, project.getSshUrl()) || urlMatch(remoteUrl, project.getHttpUrl())) {
+                        GitlabProject gitlabProject = settingsState.api(repository).getProject(project.getId());
+                        projectState.setProjectId(remoteUrl, gitlabProject.getId());
                         return Optional.of(gitlabProject);
                     }
                 }
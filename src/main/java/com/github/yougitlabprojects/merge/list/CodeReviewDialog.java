@@ -1,5 +1,6 @@
 package com.github.yougitlabprojects.merge.list;
 
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
 import com.github.yougitlabprojects.comment.CommentsDialog;
 import com.github.yougitlabprojects.comment.GitLabCommentsListWorker;
 import com.github.yougitlabprojects.configuration.SettingsState;
@@ -11,7 +12,6 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.Convertor;
-import org.gitlab.api.models.GitlabMergeRequest;
 import org.gitlab.api.models.GitlabUser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -26,7 +26,7 @@ import javax.swing.*;
  */
 public class CodeReviewDialog extends DialogWrapper {
 
-    final private GitlabMergeRequest mergeRequest;
+    final private MergeRequestDto mergeRequest;
     final private GitLabMergeRequestListWorker mergeRequestWorker;
 
     private Project project;
@@ -48,7 +48,7 @@ public class CodeReviewDialog extends DialogWrapper {
     private boolean diffClicked = false;
 
     protected CodeReviewDialog(@Nullable Project project,
-                               @NotNull GitlabMergeRequest mergeRequest,
+                               @NotNull MergeRequestDto mergeRequest,
                                @NotNull GitLabMergeRequestListWorker mergeRequestWorker,
                                VirtualFile virtualFile
     ) {
@@ -74,8 +74,8 @@ public class CodeReviewDialog extends DialogWrapper {
         requestName.setText(mergeRequest.getTitle());
 
         String assignee = "";
-        if (mergeRequest.getAssignee() != null) {
-            assignee = mergeRequest.getAssignee().getName();
+        if (mergeRequest.getAssigneeName() != null) {
+            assignee = mergeRequest.getAssigneeName();
         }
         assigneeName.setText(assignee);
 
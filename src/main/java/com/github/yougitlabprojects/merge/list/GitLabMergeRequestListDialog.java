@@ -1,10 +1,10 @@
 package com.github.yougitlabprojects.merge.list;
 
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
 import com.github.yougitlabprojects.common.ReadOnlyTableModel;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.vfs.VirtualFile;
-import org.gitlab.api.models.GitlabMergeRequest;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -45,7 +45,7 @@ public class GitLabMergeRequestListDialog extends DialogWrapper {
         setOKButtonText("Code Review");
         setHorizontalStretch(2);
 
-        List<GitlabMergeRequest> mergeRequests = mergeRequestListWorker.getMergeRequests();
+        List<MergeRequestDto> mergeRequests = mergeRequestListWorker.getMergeRequests();
         listOfRequests.setModel(mergeRequestModel(mergeRequests));
         listOfRequests.getColumnModel().getColumn(0).setPreferredWidth(200);
         listOfRequests.getColumnModel().getColumn(5).setWidth(0);
@@ -58,8 +58,8 @@ public class GitLabMergeRequestListDialog extends DialogWrapper {
 
     @Override
     protected void doOKAction() {
-        GitlabMergeRequest mergeRequest =
-                (GitlabMergeRequest) listOfRequests.getValueAt(listOfRequests.getSelectedRow(), 5);
+        MergeRequestDto mergeRequest =
+                (MergeRequestDto) listOfRequests.getValueAt(listOfRequests.getSelectedRow(), 5);
         CodeReviewDialog codeReviewDialog = new CodeReviewDialog(project, mergeRequest, mergeRequestListWorker, file);
         codeReviewDialog.show();
         if (codeReviewDialog.isOK()) {
@@ -67,19 +67,19 @@ public class GitLabMergeRequestListDialog extends DialogWrapper {
         }
     }
 
-    private TableModel mergeRequestModel(List<GitlabMergeRequest> mergeRequests) {
+    private TableModel mergeRequestModel(List<MergeRequestDto> mergeRequests) {
         Object[] columnNames = {"Merge request", "Author", "Source", "Target", "Assignee", ""};
         Object[][] data = new Object[mergeRequests.size()][columnNames.length];
         int i = 0;
-        for (GitlabMergeRequest mergeRequest : mergeRequests) {
+        for (MergeRequestDto mergeRequest : mergeRequests) {
             Object[] row = new Object[columnNames.length];
             row[0] = mergeRequest.getTitle();
-            row[1] = mergeRequest.getAuthor().getName();
+            row[1] = mergeRequest.getAuthorName();
             row[2] = mergeRequest.getSourceBranch();
             row[3] = mergeRequest.getTargetBranch();
             String assignee = "";
-            if (mergeRequest.getAssignee() != null) {
-                assignee = mergeRequest.getAssignee().getName();
+            if (mergeRequest.getAssigneeName() != null) {
+                assignee = mergeRequest.getAssigneeName();
             }
             row[4] = assignee;
             row[5] = mergeRequest;
@@ -1,7 +1,9 @@
 package com.github.yougitlabprojects.merge.list;
 
+import com.github.yougitlabprojects.api.dto.MergeRequestDto;
 import com.github.yougitlabprojects.configuration.ProjectState;
 import com.github.yougitlabprojects.configuration.SettingsState;
+import com.github.yougitlabprojects.exception.CircuitOpenException;
 import com.github.yougitlabprojects.exception.MergeRequestException;
 import com.github.yougitlabprojects.util.GitLabUtil;
 import com.github.yougitlabprojects.util.MessageUtil;
@@ -16,7 +18,6 @@ import com.github.yougitlabprojects.merge.GitLabDiffViewWorker;
 import com.github.yougitlabprojects.merge.GitLabMergeRequestWorker;
 import git4idea.commands.Git;
 import git4idea.repo.GitRepository;
-import org.gitlab.api.models.GitlabMergeRequest;
 import org.gitlab.api.models.GitlabProject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -46,9 +47,9 @@ public class GitLabMergeRequestListWorker implements GitLabMergeRequestWorker {
     private String remoteProjectName;
     private GitLabDiffViewWorker diffViewWorker;
 
-    private List<GitlabMergeRequest> mergeRequests;
+    private List<MergeRequestDto> mergeRequests;
 
-    public void mergeBranches(final Project project, final GitlabMergeRequest mergeRequest) {
+    public void mergeBranches(final Project project, final MergeRequestDto mergeRequest) {
         new Task.Backgroundable(project, "Merging Branches...") {
             @Override
             public void run(@NotNull ProgressIndicator indicator) {
@@ -79,8 +80,8 @@ public class GitLabMergeRequestListWorker implements GitLabMergeRequestWorker {
                 try {
                     mergeRequestListWorker.setMergeRequests(settingsState.api(project, file).getMergeRequests(mergeRequestListWorker.getGitlabProject()));
                 } catch (IOException e) {
-                    mergeRequestListWorker.setMergeRequests(Collections.<GitlabMergeRequest>emptyList());
-                    MessageUtil.showErrorDialog(project, "Cannot load merge requests from GitLab API", "Cannot Load Merge Requests");
+                    mergeRequestListWorker.setMergeRequests(Collections.<MergeRequestDto>emptyList());
+                    MessageUtil.showErrorDialog(project, e instanceof CircuitOpenException ? e.getMessage() : "Cannot load merge requests from GitLab API", "Cannot Load Merge Requests");
                 }
 
                 return mergeRequestListWorker;
@@ -169,11 +170,11 @@ public class GitLabMergeRequestListWorker implements GitLabMergeRequestWorker {
         this.diffViewWorker = diffViewWorker;
     }
 
-    public List<GitlabMergeRequest> getMergeRequests() {
+    public List<MergeRequestDto> getMergeRequests() {
         return mergeRequests;
     }
 
-    public void setMergeRequests(List<GitlabMergeRequest> mergeRequests) {
+    public void setMergeRequests(List<MergeRequestDto> mergeRequests) {
         this.mergeRequests = mergeRequests;
     }
     //endregion
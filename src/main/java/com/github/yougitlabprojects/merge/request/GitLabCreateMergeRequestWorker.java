@@ -1,7 +1,9 @@
 package com.github.yougitlabprojects.merge.request;
 
+import com.github.yougitlabprojects.api.AsyncApiFacade;
 import com.github.yougitlabprojects.configuration.ProjectState;
 import com.github.yougitlabprojects.configuration.SettingsState;
+import com.github.yougitlabprojects.exception.CircuitOpenException;
 import com.github.yougitlabprojects.exception.MergeRequestException;
 import com.github.yougitlabprojects.dto.GitlabServer;
 import com.github.yougitlabprojects.util.GitLabUtil;
@@ -24,7 +26,6 @@ import git4idea.branch.GitBranchesCollection;
 import git4idea.commands.Git;
 import git4idea.commands.GitCommandResult;
 import git4idea.repo.GitRepository;
-import org.gitlab.api.models.GitlabBranch;
 import org.gitlab.api.models.GitlabMergeRequest;
 import org.gitlab.api.models.GitlabProject;
 import org.gitlab.api.models.GitlabUser;
@@ -35,6 +36,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -189,26 +192,35 @@ public class GitLabCreateMergeRequestWorker implements GitLabMergeRequestWorker
 
                 String lastMergedBranch = mergeRequestWorker.getProjectState().getLastMergedBranch();
 
-                try {
-                    List<GitlabBranch> branches = settingsState
-                            .api(project, file)
-                            .loadProjectBranches(mergeRequestWorker.getGitlabProject());
-                    List<BranchInfo> branchInfos = new ArrayList<>();
-                    for (GitlabBranch branch : branches) {
-                        BranchInfo branchInfo = new BranchInfo(branch.getName(), mergeRequestWorker.getRemoteProjectName());
-                        if (branch.getName().equals(lastMergedBranch)) {
-                            mergeRequestWorker.setLastUsedBranch(branchInfo);
-                        }
-                        branchInfos.add(branchInfo);
+                AsyncApiFacade api = settingsState.api(project, file).async();
+                List<BranchInfo> branchInfos = new ArrayList<>();
+                CompletableFuture<Void> branchesFuture = api.streamProjectBranchNames(mergeRequestWorker.getGitlabProject(), branchName -> {
+                    BranchInfo branchInfo = new BranchInfo(branchName, mergeRequestWorker.getRemoteProjectName());
+                    if (branchName.equals(lastMergedBranch)) {
+                        mergeRequestWorker.setLastUsedBranch(branchInfo);
                     }
+                    branchInfos.add(branchInfo);
+                });
+                CompletableFuture<Collection<GitlabUser>> usersFuture = api.searchUsers(mergeRequestWorker.getGitlabProject(), "");
+
+                try {
+                    branchesFuture.get();
                     mergeRequestWorker.setRemoteBranches(branchInfos);
+                } catch (InterruptedException e) {
+                    // loading was cancelled
+                    branchesFuture.cancel(true);
+                    usersFuture.cancel(true);
+                    Thread.currentThread().interrupt();
+                    return null;
                 } catch (Exception e) {
-                    MessageUtil.showErrorDialog(project, "Cannot list GitLab branches", CANNOT_CREATE_MERGE_REQUEST);
+                    usersFuture.cancel(true);
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    MessageUtil.showErrorDialog(project, cause instanceof CircuitOpenException ? cause.getMessage() : "Cannot list GitLab branches", CANNOT_CREATE_MERGE_REQUEST);
                     return null;
                 }
 
                 mergeRequestWorker.setLocalBranchInfo(new BranchInfo(mergeRequestWorker.getGitLocalBranch().getName(), mergeRequestWorker.getRemoteProjectName(), false));
-                mergeRequestWorker.setSearchableUsers(new SearchableUsers(project, file, mergeRequestWorker.getGitlabProject()));
+                mergeRequestWorker.setSearchableUsers(new SearchableUsers(project, file, mergeRequestWorker.getGitlabProject(), usersFuture));
                 //endregion
 
                 return mergeRequestWorker;
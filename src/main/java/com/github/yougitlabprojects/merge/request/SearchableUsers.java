@@ -2,13 +2,18 @@ package com.github.yougitlabprojects.merge.request;
 
 import com.github.yougitlabprojects.component.Searchable;
 import com.github.yougitlabprojects.configuration.SettingsState;
+import com.github.yougitlabprojects.exception.CircuitOpenException;
 import com.github.yougitlabprojects.util.MessageUtil;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.gitlab.api.models.GitlabProject;
+import org.gitlab.api.models.GitlabUser;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
@@ -34,21 +39,48 @@ public class SearchableUsers implements Searchable<SearchableUser, String> {
         this.initialModel = search("");
     }
 
+    /**
+     * @param initialUsers users matching empty search, already requested in parallel with other data
+     */
+    public SearchableUsers(Project project, VirtualFile file, GitlabProject gitlabProject, CompletableFuture<Collection<GitlabUser>> initialUsers) {
+        this.project = project;
+        this.file = file;
+        this.gitlabProject = gitlabProject;
+        try {
+            this.initialModel = toSearchable(initialUsers.get());
+        } catch (InterruptedException e) {
+            initialUsers.cancel(true);
+            Thread.currentThread().interrupt();
+            this.initialModel = emptyList();
+        } catch (ExecutionException | CancellationException e) {
+            showLoadError(e.getCause());
+            this.initialModel = emptyList();
+        }
+    }
+
     @Override
     public Collection<SearchableUser> search(String toSearch) {
         try {
-            return settingsState
+            return toSearchable(settingsState
                     .api(project, file)
-                    .searchUsers(gitlabProject, toSearch)
-                    .stream()
-                    .map(SearchableUser::new)
-                    .collect(Collectors.toList());
+                    .searchUsers(gitlabProject, toSearch));
         } catch (IOException e) {
-            MessageUtil.showErrorDialog(project, "New remote origin cannot be added to this project.", "Cannot Add New Remote");
+            showLoadError(e);
         }
         return emptyList();
     }
 
+    private void showLoadError(Throwable cause) {
+        MessageUtil.showErrorDialog(project, cause instanceof CircuitOpenException ? cause.getMessage() : "Cannot load users from GitLab API", "Cannot Load Users");
+    }
+
+    private Collection<SearchableUser> toSearchable(Collection<GitlabUser> users) {
+        return users
+                .stream()
+                .map(SearchableUser::new)
+                .collect(Collectors.toList());
+    }
+
     public Collection<SearchableUser> getInitialModel() {
         return initialModel;
     }
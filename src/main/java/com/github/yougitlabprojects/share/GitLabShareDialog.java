@@ -119,10 +119,7 @@ public class GitLabShareDialog extends DialogWrapper {
                         setId(0);
                         setPath("Default");
                     }});
-                    List<NamespaceDto> remoteNamespaces = settingsState.api((GitlabServer) serverList.getSelectedItem()).getNamespaces();
-                    if(remoteNamespaces != null) {
-                        namespaces.addAll(remoteNamespaces);
-                    }
+                    settingsState.api((GitlabServer) serverList.getSelectedItem()).streamNamespaces(namespaces::add);
                     CollectionComboBoxModel collectionComboBoxModel = new CollectionComboBoxModel(namespaces, namespaces.get(0));
                     groupList.setModel(collectionComboBoxModel);
 
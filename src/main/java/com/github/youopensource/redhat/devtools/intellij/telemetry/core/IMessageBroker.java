@@ -12,7 +12,28 @@ package com.github.youopensource.redhat.devtools.intellij.telemetry.core;
 
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.TelemetryEvent;
 
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 public interface IMessageBroker {
     void send(TelemetryEvent event);
     void dispose();
+
+    /**
+     * @return false while recent deliveries failed, e.g. because the network is down
+     */
+    default boolean isOnline() {
+        return true;
+    }
+
+    /**
+     * Sends the event and reports whether it was delivered. Brokers that cannot tell report it as delivered once sent.
+     *
+     * @param messageId identifies the event, an event sent again with the same id is dropped as a duplicate
+     * @return completes with false when the delivery failed
+     */
+    default CompletableFuture<Boolean> deliver(TelemetryEvent event, UUID messageId) {
+        send(event);
+        return CompletableFuture.completedFuture(true);
+    }
 }
@@ -28,5 +28,12 @@ public abstract class AbstractConfiguration implements IConfiguration {
         properties.get().put(key, value);
     }
 
+    /**
+     * Discards the loaded properties, they are loaded again on the next access
+     */
+    public void reload() {
+        properties.reset();
+    }
+
     protected abstract Properties loadProperties();
 }
@@ -11,22 +11,52 @@
 package com.github.youopensource.redhat.devtools.intellij.telemetry.core.configuration;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Configuration that resolves a key to the value of the first of its configurations that has it.
+ * Resolved values, including missing ones, are kept in a snapshot, so repeated lookups are a single map lookup.
+ * Subclasses {@link #invalidate()} the snapshot whenever one of their configurations changes.
+ */
 public abstract class CompositeConfiguration implements IConfiguration {
 
+    // marks keys that none of the configurations has, compared by identity
+    private static final String MISSING = new String();
+
+    private volatile Map<String, String> snapshot = new ConcurrentHashMap<>();
+
     @Override
     public String get(final String key) {
+        Map<String, String> snapshot = this.snapshot;
+        String value = snapshot.get(key);
+        if (value == null) {
+            value = resolve(key);
+            // a lookup racing with invalidate() stores into the discarded snapshot only
+            snapshot.putIfAbsent(key, value);
+        }
+        return value == MISSING ? null : value;
+    }
+
+    private String resolve(String key) {
         List<IConfiguration> configurations = getConfigurations();
         if (configurations == null
                 || configurations.isEmpty()) {
-            return null;
+            return MISSING;
         }
         return configurations.stream()
                 .map(configuration -> configuration.get(key))
                 .filter(Objects::nonNull)
                 .findFirst()
-                .orElse(null);
+                .orElse(MISSING);
+    }
+
+    /**
+     * Discards all resolved values, the following lookups query the configurations again
+     */
+    public void invalidate() {
+        this.snapshot = new ConcurrentHashMap<>();
     }
 
     protected abstract List<IConfiguration> getConfigurations();
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.configuration;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Notifies about a file being created, modified or deleted, on a daemon thread.
+ */
+class FileWatcher implements Closeable {
+
+    private static final Logger LOGGER = Logger.getInstance(FileWatcher.class);
+
+    private final Path file;
+    private final Runnable onChange;
+    private final WatchService service;
+
+    private FileWatcher(Path file, Runnable onChange, WatchService service) {
+        this.file = file;
+        this.onChange = onChange;
+        this.service = service;
+    }
+
+    /**
+     * @return the watcher or {@code null} when the directory of the file cannot be watched
+     */
+    static FileWatcher watch(Path file, Runnable onChange) {
+        Path directory = file.toAbsolutePath().getParent();
+        WatchService service = null;
+        try {
+            Files.createDirectories(directory);
+            service = directory.getFileSystem().newWatchService();
+            directory.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Could not watch " + file + " for changes.", e);
+            close(service);
+            return null;
+        }
+        FileWatcher watcher = new FileWatcher(file.getFileName(), onChange, service);
+        Thread thread = new Thread(watcher::run, "Watcher for " + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || file.equals(event.context());
+                }
+                if (changed) {
+                    notifyChange();
+                }
+                if (!key.reset()) {
+                    LOGGER.warn("Stopped watching " + file + " for changes, its directory is not accessible anymore.");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void notifyChange() {
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not process change of " + file + ".", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        close(service);
+    }
+
+    private static void close(WatchService service) {
+        if (service == null) {
+            return;
+        }
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -21,20 +21,42 @@ import java.util.List;
 public class TelemetryConfiguration extends CompositeConfiguration {
 
     public static final String KEY_MODE = "com.redhat.devtools.intellij.telemetry.mode";
+    /**
+     * Prefix of sampling rules, e.g. {@code com.redhat.devtools.intellij.telemetry.sampling.intellij_user_click=0.1}
+     * lets one in ten users send the {@code intellij_user_click} event.
+     */
+    public static final String KEY_SAMPLING_PREFIX = "com.redhat.devtools.intellij.telemetry.sampling.";
 
     private static final SaveableFileConfiguration FILE = new SaveableFileConfiguration(
             Directories.RED_HAT.resolve("com.redhat.devtools.intellij.telemetry"));
 
-    private static TelemetryConfiguration INSTANCE = new TelemetryConfiguration();
+    private static TelemetryConfiguration INSTANCE = createInstance();
+
+    private final SystemProperties systemProperties = new SystemProperties();
 
     public static TelemetryConfiguration getInstance() {
         return INSTANCE;
     }
 
+    private static TelemetryConfiguration createInstance() {
+        TelemetryConfiguration configuration = new TelemetryConfiguration();
+        FileWatcher.watch(FILE.path, configuration::saveableFileChanged);
+        return configuration;
+    }
+
     // for testing purposes
     protected TelemetryConfiguration() {
     }
 
+    /**
+     * Loads the saveable file again after it was changed on disk, e.g. by another IDE.
+     * Values that were {@link #put} but not {@link #save}d yet are lost.
+     */
+    void saveableFileChanged() {
+        getSaveableFile().reload();
+        invalidate();
+    }
+
     public void setMode(Mode mode) {
         put(KEY_MODE, mode.toString());
     }
@@ -59,9 +81,26 @@ public class TelemetryConfiguration extends CompositeConfiguration {
         return getMode().isConfigured();
     }
 
+    /**
+     * @return share of users sending events of given name between 0 and 1, 1 when there is no valid rule for it
+     */
+    public double getSamplingRate(String eventName) {
+        String value = get(KEY_SAMPLING_PREFIX + eventName);
+        if (value == null) {
+            return 1;
+        }
+        try {
+            double rate = Double.parseDouble(value.trim());
+            return Double.isNaN(rate) ? 1 : Math.max(0, Math.min(1, rate));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
     @Override
     public void put(String key, String value) {
         getSaveableFile().put(key, value);
+        invalidate();
         getNotifier().configurationChanged(key, value);
     }
 
@@ -73,7 +112,7 @@ public class TelemetryConfiguration extends CompositeConfiguration {
     @Override
     protected List<IConfiguration> getConfigurations() {
         return Arrays.asList(
-                new SystemProperties(),
+                systemProperties,
                 getSaveableFile());
     }
 
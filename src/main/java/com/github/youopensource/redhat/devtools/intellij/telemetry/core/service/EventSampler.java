@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Decides whether events of a given name are sent by this user.
+ * The decision hashes the anonymous user id with the event name, so a user either sends all events of a name or none
+ * and the share of sending users matches the configured rate.
+ */
+class EventSampler {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ToDoubleFunction<String> rates;
+    private final Supplier<String> userId;
+
+    /**
+     * @param rates sampling rate between 0 and 1 for an event name
+     */
+    EventSampler(ToDoubleFunction<String> rates, Supplier<String> userId) {
+        this.rates = rates;
+        this.userId = userId;
+    }
+
+    boolean isSampled(String eventName) {
+        double rate = rates.applyAsDouble(eventName);
+        if (rate >= 1) {
+            return true;
+        }
+        if (rate <= 0) {
+            return false;
+        }
+        return bucket(userId.get(), eventName) < rate;
+    }
+
+    /**
+     * @return stable value in [0, 1) for the user and event name
+     */
+    static double bucket(String userId, String eventName) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = fnv(hash, userId != null ? userId : "");
+        hash = (hash ^ '\n') * FNV_PRIME;
+        hash = fnv(hash, eventName);
+        // finalizer of MurmurHash3 spreads the FNV result over the high bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static long fnv(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
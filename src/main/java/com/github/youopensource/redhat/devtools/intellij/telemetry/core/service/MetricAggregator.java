@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service;
+
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.TimeUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Accumulates counts and durations of high-frequency actions locally
+ * and sends one summary event per action name and interval instead of one event per action.
+ */
+class MetricAggregator {
+
+    static final long INTERVAL_SECONDS = 60;
+    static final int MAX_SAMPLES = 1024;
+
+    static final String PROP_AGGREGATED = "aggregated";
+    static final String PROP_INTERVAL = "interval";
+    static final String PROP_COUNT = "count";
+    static final String PROP_ERRORS = "errors";
+    static final String PROP_DURATION_P50 = "duration_p50_ms";
+    static final String PROP_DURATION_P95 = "duration_p95_ms";
+    static final String PROP_DURATION_P99 = "duration_p99_ms";
+    static final String PROP_DURATION_MAX = "duration_max_ms";
+
+    private final Consumer<TelemetryEvent> sink;
+    private final Supplier<ScheduledExecutorService> scheduler;
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final LongSupplier clock;
+    // start of the current interval, flushes are late when the scheduler is busy and may also be requested directly
+    private volatile long intervalStartNanos;
+
+    /**
+     * @param sink receives the summary events
+     * @param scheduler runs the periodic flush, requested when the first action is recorded
+     */
+    MetricAggregator(Consumer<TelemetryEvent> sink, Supplier<ScheduledExecutorService> scheduler) {
+        this(sink, scheduler, System::nanoTime);
+    }
+
+    /**
+     * @param clock current time in nanoseconds
+     */
+    MetricAggregator(Consumer<TelemetryEvent> sink, Supplier<ScheduledExecutorService> scheduler, LongSupplier clock) {
+        this.sink = sink;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.intervalStartNanos = clock.getAsLong();
+    }
+
+    void record(String name, Duration duration, boolean error) {
+        metrics.computeIfAbsent(name, Metric::new).record(duration != null ? duration.toMillis() : -1, error);
+        if (scheduled.compareAndSet(false, true)) {
+            intervalStartNanos = clock.getAsLong();
+            scheduler.get().scheduleWithFixedDelay(this::flush, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Sends summary events of all actions recorded since the last flush
+     */
+    void flush() {
+        long now = clock.getAsLong();
+        Duration interval = Duration.ofNanos(now - intervalStartNanos);
+        intervalStartNanos = now;
+        for (Metric metric : metrics.values()) {
+            TelemetryEvent event = metric.drain(interval);
+            if (event != null) {
+                sink.accept(event);
+            }
+        }
+    }
+
+    private static class Metric {
+
+        private final String name;
+        private final long[] samples = new long[MAX_SAMPLES];
+        private int sampleCount;
+        // actions with a duration, the reservoir is sampled over these only
+        private long sampled;
+        private long count;
+        private long errors;
+
+        private Metric(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(long durationMillis, boolean error) {
+            count++;
+            if (error) {
+                errors++;
+            }
+            if (durationMillis < 0) {
+                return;
+            }
+            sampled++;
+            if (sampleCount < MAX_SAMPLES) {
+                samples[sampleCount++] = durationMillis;
+            } else {
+                // reservoir sampling keeps percentiles representative when an interval has more actions than samples
+                long slot = ThreadLocalRandom.current().nextLong(sampled);
+                if (slot < MAX_SAMPLES) {
+                    samples[(int) slot] = durationMillis;
+                }
+            }
+        }
+
+        /**
+         * @param interval time elapsed since the previous drain
+         * @return summary of the interval and resets the metric, {@code null} when nothing was recorded
+         */
+        synchronized TelemetryEvent drain(Duration interval) {
+            if (count == 0) {
+                return null;
+            }
+            Map<String, String> properties = new HashMap<>();
+            properties.put(PROP_AGGREGATED, Boolean.TRUE.toString());
+            properties.put(PROP_INTERVAL, TimeUtils.toString(interval));
+            properties.put(PROP_COUNT, String.valueOf(count));
+            properties.put(PROP_ERRORS, String.valueOf(errors));
+            if (sampleCount > 0) {
+                Arrays.sort(samples, 0, sampleCount);
+                properties.put(PROP_DURATION_P50, String.valueOf(percentile(0.50)));
+                properties.put(PROP_DURATION_P95, String.valueOf(percentile(0.95)));
+                properties.put(PROP_DURATION_P99, String.valueOf(percentile(0.99)));
+                properties.put(PROP_DURATION_MAX, String.valueOf(samples[sampleCount - 1]));
+            }
+            count = 0;
+            errors = 0;
+            sampleCount = 0;
+            sampled = 0;
+            return new TelemetryEvent(TelemetryEvent.Type.ACTION, name, properties);
+        }
+
+        /**
+         * Nearest-rank percentile of the sorted samples
+         */
+        private long percentile(double quantile) {
+            int rank = (int) Math.ceil(quantile * sampleCount);
+            return samples[Math.max(0, rank - 1)];
+        }
+    }
+}
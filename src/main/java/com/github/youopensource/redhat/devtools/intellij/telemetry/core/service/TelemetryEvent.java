@@ -22,6 +22,8 @@ public class TelemetryEvent {
     private final Type type;
     private final String name;
     private final Map<String, String> properties;
+    // events may be sent long after they happened, e.g. from the spool after a network outage
+    private final long timestamp;
 
     public TelemetryEvent(Type type, String name) {
         this(type, name, new HashMap<>());
@@ -31,6 +33,7 @@ public class TelemetryEvent {
         this.type = type;
         this.name = name;
         this.properties = properties;
+        this.timestamp = System.currentTimeMillis();
     }
 
     public Type getType() {
@@ -44,4 +47,11 @@ public class TelemetryEvent {
     public Map<String, String> getProperties() {
         return properties;
     }
+
+    /**
+     * @return creation time in milliseconds since the epoch, 0 for events spooled before the time was recorded
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
 }
@@ -11,11 +11,14 @@
 package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service;
 
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.ITelemetryService;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.configuration.TelemetryConfiguration;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.AnonymizeUtils;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.Lazy;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.TimeUtils;
 import com.intellij.ide.AppLifecycleListener;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.messages.MessageBusConnection;
 
 import java.time.Duration;
@@ -28,17 +31,41 @@ public class TelemetryMessageBuilder {
     private static final Logger LOGGER = Logger.getInstance(TelemetryMessageBuilder.class);
 
     private final ServiceFacade service;
+    private final EventSampler sampler;
 
     public TelemetryMessageBuilder(ClassLoader classLoader) {
         this(new ServiceFacade(classLoader));
     }
 
     TelemetryMessageBuilder(ServiceFacade serviceFacade) {
+        this(serviceFacade, new EventSampler(TelemetryConfiguration.getInstance()::getSamplingRate, UserId.INSTANCE::get));
+    }
+
+    TelemetryMessageBuilder(ServiceFacade serviceFacade, EventSampler sampler) {
         this.service = serviceFacade;
+        this.sampler = sampler;
     }
 
+    /**
+     * @return action to be sent, a shared no-op action when events of this name are sampled out for this user
+     */
     public ActionMessage action(String name) {
-        return new ActionMessage(name, service);
+        if (!sampler.isSampled(name)) {
+            return DroppedActionMessage.INSTANCE;
+        }
+        return new ActionMessage(name, service, false);
+    }
+
+    /**
+     * Action for high-frequency use, sending it only counts it locally.
+     * Count, errors and duration percentiles of all actions with the same name are sent as one summary event per minute,
+     * properties other than result and error are not sent.
+     */
+    public ActionMessage aggregatedAction(String name) {
+        if (!sampler.isSampled(name)) {
+            return DroppedActionMessage.INSTANCE;
+        }
+        return new ActionMessage(name, service, true);
     }
 
     static class StartupMessage extends Message<StartupMessage> {
@@ -86,10 +113,13 @@ public class TelemetryMessageBuilder {
 
         public static final String RESULT_SUCCESS = "success";
 
+        private final boolean aggregated;
         private LocalDateTime started;
+        private Duration duration;
 
-        private ActionMessage(String name, ServiceFacade service) {
+        private ActionMessage(String name, ServiceFacade service, boolean aggregated) {
             super(TelemetryEvent.Type.ACTION, name, service);
+            this.aggregated = aggregated;
             started();
         }
 
@@ -113,6 +143,7 @@ public class TelemetryMessageBuilder {
         }
 
         public ActionMessage duration(Duration duration) {
+            this.duration = duration;
             return property(PROP_DURATION, TimeUtils.toString(duration));
         }
 
@@ -159,10 +190,17 @@ public class TelemetryMessageBuilder {
             return getProperty(PROP_ERROR);
         }
 
+        /**
+         * @return sent event, {@code null} for an aggregated action which is only counted
+         */
         @Override
         public TelemetryEvent send() {
             ensureFinished();
             ensureResultOrError();
+            if (aggregated) {
+                service().aggregate(getName(), duration, hasProperty(PROP_ERROR));
+                return null;
+            }
             return super.send();
         }
 
@@ -180,6 +218,68 @@ public class TelemetryMessageBuilder {
         }
     }
 
+    /**
+     * Action rejected by sampling, ignores all properties and is never sent
+     */
+    static class DroppedActionMessage extends ActionMessage {
+
+        static final DroppedActionMessage INSTANCE = new DroppedActionMessage();
+
+        private DroppedActionMessage() {
+            super("dropped", null, false);
+        }
+
+        @Override
+        public ActionMessage started() {
+            return this;
+        }
+
+        @Override
+        public ActionMessage started(LocalDateTime started) {
+            return this;
+        }
+
+        @Override
+        public ActionMessage finished() {
+            return this;
+        }
+
+        @Override
+        public ActionMessage finished(LocalDateTime finished) {
+            return this;
+        }
+
+        @Override
+        public ActionMessage duration(Duration duration) {
+            return this;
+        }
+
+        @Override
+        public ActionMessage result(String result) {
+            return this;
+        }
+
+        @Override
+        public ActionMessage error(Exception exception) {
+            return this;
+        }
+
+        @Override
+        public ActionMessage error(String message) {
+            return this;
+        }
+
+        @Override
+        public ActionMessage property(String key, String value) {
+            return this;
+        }
+
+        @Override
+        public TelemetryEvent send() {
+            return null;
+        }
+    }
+
     private abstract static class Message<T extends Message<?>> {
 
         private final TelemetryEvent.Type type;
@@ -219,6 +319,10 @@ public class TelemetryMessageBuilder {
             return properties;
         }
 
+        ServiceFacade service() {
+            return service;
+        }
+
         protected boolean hasProperty(String key) {
             return properties.containsKey(key);
         }
@@ -233,18 +337,28 @@ public class TelemetryMessageBuilder {
     static class ServiceFacade {
         private final ClassLoader classLoader;
         private ITelemetryService service = null;
+        private final MetricAggregator metrics = new MetricAggregator(this::send, new Lazy<>(AppExecutorUtil::getAppScheduledExecutorService));
 
         protected ServiceFacade(final ClassLoader classLoader) {
             this.classLoader = classLoader;
         }
 
         public void send(final TelemetryEvent event) {
+            ensureService();
+            service.send(event);
+        }
+
+        public void aggregate(String name, Duration duration, boolean error) {
+            ensureService();
+            metrics.record(name, duration, error);
+        }
+
+        private void ensureService() {
             if (service == null) {
                 this.service = createService(classLoader);
                 sendStartup();
                 onShutdown();
             }
-            service.send(event);
         }
 
         protected ITelemetryService createService(ClassLoader classLoader) {
@@ -261,6 +375,7 @@ public class TelemetryMessageBuilder {
             connection.subscribe(AppLifecycleListener.TOPIC, new AppLifecycleListener() {
                 @Override
                 public void appWillBeClosed(boolean isRestart) {
+                    metrics.flush();
                     sendShutdown();
                 }
             });
@@ -10,7 +10,7 @@
  ******************************************************************************/
 package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service;
 
-import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.CircularBuffer;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.MpscRingBuffer;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.util.messages.MessageBusConnection;
@@ -28,13 +28,17 @@ public class TelemetryService implements ITelemetryService {
 
     private static final Logger LOGGER = Logger.getInstance(TelemetryService.class);
 
-    private static final int BUFFER_SIZE = 35;
+    private static final int BUFFER_SIZE = 32;
 
     private final TelemetryNotifications notifications;
     private final TelemetryConfiguration configuration;
     protected final IMessageBroker broker;
     private final AtomicBoolean userQueried = new AtomicBoolean(false);
-    private final CircularBuffer<TelemetryEvent> onHold = new CircularBuffer<>(BUFFER_SIZE);
+    // identify is sent once per session, the broker skips it when the traits match the ones sent before
+    private final AtomicBoolean userInfoSent = new AtomicBoolean(false);
+    private final MpscRingBuffer<TelemetryEvent> onHold = new MpscRingBuffer<>(BUFFER_SIZE);
+    // events are offered by any thread but drained by one at a time, sending an event re-enters the flush
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
 
     public TelemetryService(final TelemetryConfiguration configuration, final IMessageBroker broker) {
         this(configuration, broker, ApplicationManager.getApplication().getMessageBus().connect(), new TelemetryNotifications());
@@ -54,6 +58,7 @@ public class TelemetryService implements ITelemetryService {
         connection.subscribe(ConfigurationChangedListener.CONFIGURATION_CHANGED, (String key, String value) -> {
             if (KEY_MODE.equals(key)
                     && Mode.safeValueOf(value).isEnabled()) {
+                userInfoSent.set(false);
                 flushOnHold();
             }
         });
@@ -67,6 +72,9 @@ public class TelemetryService implements ITelemetryService {
     }
 
     private void sendUserInfo() {
+        if (!userInfoSent.compareAndSet(false, true)) {
+            return;
+        }
         doSend(new TelemetryEvent(
                 Type.USER,
                 "Anonymous ID: " + UserId.INSTANCE.get()));
@@ -83,8 +91,9 @@ public class TelemetryService implements ITelemetryService {
         if (isEnabled()) {
             flushOnHold();
             broker.send(event);
-        } else if (!isConfigured()) {
-            onHold.offer(event);
+        } else if (!isConfigured()
+                && !onHold.offer(event)) {
+            LOGGER.debug("Dropped telemetry event " + event.getName() + ", " + onHold.getDroppedCount() + " events dropped while waiting for consent");
         }
     }
 
@@ -99,12 +108,29 @@ public class TelemetryService implements ITelemetryService {
     }
 
     private void flushOnHold() {
-        onHold.pollAll().forEach(this::send);
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            onHold.drainTo(this::send);
+        } finally {
+            flushing.set(false);
+        }
     }
 
     public void dispose() {
         flushOnHold();
-        onHold.clear();
+        if (flushing.compareAndSet(false, true)) {
+            onHold.clear();
+            flushing.set(false);
+        }
         broker.dispose();
     }
+
+    /**
+     * @return number of events dropped because too many were waiting for user consent
+     */
+    public long getDroppedOnHoldCount() {
+        return onHold.getDroppedCount();
+    }
 }
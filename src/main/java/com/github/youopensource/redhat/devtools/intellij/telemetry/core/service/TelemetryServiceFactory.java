@@ -15,9 +15,19 @@ import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.
 import com.intellij.openapi.project.DumbAware;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.IMessageBroker;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.segment.SegmentConfiguration;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.spool.SpoolingMessageBroker;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.spool.TelemetrySpool;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.Directories;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class TelemetryServiceFactory implements DumbAware {
 
+    private static final Logger LOGGER = Logger.getInstance(TelemetryServiceFactory.class);
+    private static final Path SPOOL_DIRECTORY = Directories.RED_HAT.resolve("telemetry-spool");
+
     private final Environment.Builder builder = new Environment.Builder()
             .ide(new IDE.Factory().create()
                     .setJavaVersion());
@@ -25,10 +35,19 @@ public class TelemetryServiceFactory implements DumbAware {
     public TelemetryService create(ClassLoader classLoader) {
         Environment environment = builder.plugin(classLoader).build();
         TelemetryConfiguration configuration = TelemetryConfiguration.getInstance();
-        IMessageBroker broker = createSegmentBroker(configuration.isDebug(), classLoader, environment);
+        IMessageBroker broker = createSpoolingBroker(createSegmentBroker(configuration.isDebug(), classLoader, environment));
         return new TelemetryService(configuration, broker);
     }
 
+    private IMessageBroker createSpoolingBroker(IMessageBroker broker) {
+        try {
+            return new SpoolingMessageBroker(broker, TelemetrySpool.open(SPOOL_DIRECTORY));
+        } catch (IOException e) {
+            LOGGER.warn("Could not open telemetry spool at " + SPOOL_DIRECTORY + ", sending events directly.", e);
+            return broker;
+        }
+    }
+
     private IMessageBroker createSegmentBroker(boolean isDebug, ClassLoader classLoader, Environment environment) {
         SegmentConfiguration brokerConfiguration = new SegmentConfiguration(classLoader);
         return new SegmentBroker(
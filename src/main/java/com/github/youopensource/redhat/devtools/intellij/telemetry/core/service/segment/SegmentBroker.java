@@ -13,18 +13,29 @@ package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.Application;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.Lazy;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.MapBuilder;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.OverlayMap;
 import com.intellij.openapi.diagnostic.Logger;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.IMessageBroker;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.Environment;
 import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.TelemetryEvent;
 import com.segment.analytics.Analytics;
+import com.segment.analytics.Callback;
 import com.segment.analytics.messages.IdentifyMessage;
+import com.segment.analytics.messages.Message;
 import com.segment.analytics.messages.MessageBuilder;
 import com.segment.analytics.messages.PageMessage;
 import com.segment.analytics.messages.TrackMessage;
 
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 public class SegmentBroker implements IMessageBroker {
@@ -87,7 +98,16 @@ public class SegmentBroker implements IMessageBroker {
     private final String userId;
     private final IdentifyTraitsPersistence identifyTraitsPersistence;
     private final Environment environment;
+    // environment does not change within a session, so context and static track properties are built only once
+    private final Lazy<Map<String, Object>> context;
+    private final Lazy<Map<String, String>> trackProperties;
+    private final Lazy<IdentifyTraits> identifyTraits;
+    // traits of the last identify delivered in this session, compared before the persisted ones which may need disk access
+    private final AtomicReference<IdentifyTraits> identified = new AtomicReference<>();
+    // identify messages waiting for the delivery callback, their traits count as sent only once delivered
+    private final Map<String, IdentifyTraits> identifying = new ConcurrentHashMap<>();
     private Lazy<Analytics> analytics;
+    private final DeliveryCallback delivery;
 
     public SegmentBroker(boolean isDebug, String userId, Environment environment, ISegmentConfiguration configuration) {
         this(isDebug, userId, IdentifyTraitsPersistence.INSTANCE, environment, configuration, new AnalyticsFactory());
@@ -97,39 +117,89 @@ public class SegmentBroker implements IMessageBroker {
         this.userId = userId;
         this.identifyTraitsPersistence = identifyTraitsPersistence;
         this.environment = environment;
+        this.context = new Lazy<>(() -> createContext(environment));
+        this.trackProperties = new Lazy<>(() -> createTrackProperties(environment));
+        this.identifyTraits = new Lazy<>(() -> new IdentifyTraits(
+                environment.getLocale(),
+                environment.getTimezone(),
+                environment.getPlatform().getName(),
+                environment.getPlatform().getVersion(),
+                environment.getPlatform().getDistribution()));
         this.analytics = new Lazy<>(() -> analyticsFactory.apply(getWriteKey(isDebug, configuration)));
+        this.delivery = analyticsFactory instanceof AnalyticsFactory ? ((AnalyticsFactory) analyticsFactory).delivery : null;
+        if (delivery != null) {
+            delivery.listener = this::onDelivery;
+        }
     }
 
     @Override
     public void send(TelemetryEvent event) {
+        enqueue(event, null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deliver(TelemetryEvent event, UUID messageId) {
+        if (delivery == null) {
+            return CompletableFuture.completedFuture(enqueue(event, messageId) != Outcome.UNAVAILABLE);
+        }
+        // expected before enqueueing, the callback may run before enqueue returns
+        CompletableFuture<Boolean> delivered = delivery.expect(messageId);
+        switch (enqueue(event, messageId)) {
+            case ENQUEUED:
+                break;
+            case UNAVAILABLE:
+                // spooled events wait like while the network is down
+                delivery.online = false;
+                delivered.complete(false);
+                break;
+            default:
+                // delivered before or never deliverable, sending it again would not change anything
+                delivered.complete(true);
+        }
+        return delivered;
+    }
+
+    private Outcome enqueue(TelemetryEvent event, UUID messageId) {
         try {
             if (analytics.get() == null) {
                 LOGGER.warn("Could not send " + event.getType() + " event '" + event.getName() + "': no analytics instance present.");
-                return;
+                return Outcome.UNAVAILABLE;
             }
-            Map<String, Object> context = createContext(environment);
             SegmentType segmentType = SegmentType.valueOf(event.getType());
-            MessageBuilder builder = segmentType.toMessage(event, context, this);
+            MessageBuilder builder = segmentType.toMessage(event, context.get(), this);
             if (builder == null) {
                 LOGGER.debug("No message to be sent.");
-            } else {
-                LOGGER.debug("Sending message " + builder.type() + " to segment.");
-                analytics.get().enqueue(builder);
+                return Outcome.DELIVERED;
+            }
+            if (event.getTimestamp() > 0) {
+                builder.timestamp(new Date(event.getTimestamp()));
+            }
+            if (builder instanceof IdentifyMessage.Builder) {
+                // the id tells the delivery callback which traits were identified
+                messageId = messageId != null ? messageId : UUID.randomUUID();
+                onIdentifying(messageId);
+            }
+            if (messageId != null) {
+                builder.messageId(messageId);
             }
+            LOGGER.debug("Sending message " + builder.type() + " to segment.");
+            analytics.get().enqueue(builder);
+            return Outcome.ENQUEUED;
         } catch (IllegalArgumentException e) {
             LOGGER.warn("Could not send " + event.getName() + " event: unknown type '" + event.getType() + "'.");
+            return Outcome.INVALID;
         }
     }
 
     private MessageBuilder toMessage(IdentifyMessage.Builder builder, TelemetryEvent event, Map<String, Object> context) {
-        IdentifyTraits identifyTraits = new IdentifyTraits(
-                environment.getLocale(),
-                environment.getTimezone(),
-                environment.getPlatform().getName(),
-                environment.getPlatform().getVersion(),
-                environment.getPlatform().getDistribution());
-        if (!haveChanged(identifyTraits, identifyTraitsPersistence)) {
+        IdentifyTraits identifyTraits = this.identifyTraits.get();
+        if (identifyTraits.equals(identified.get())) {
+            LOGGER.debug("Skipping identify message: already sent in this session.");
+            return null;
+        }
+        if (identifyTraitsPersistence != null && identifyTraits.equals(identifyTraitsPersistence.get())) {
             LOGGER.debug("Skipping identify message: already sent." + identifyTraits);
+            identified.set(identifyTraits);
             return null;
         }
         return builder
@@ -138,21 +208,33 @@ public class SegmentBroker implements IMessageBroker {
                 .context(context);
     }
 
+    private void onIdentifying(UUID messageId) {
+        if (delivery == null) {
+            // without delivery callback an enqueued identify is considered sent
+            markIdentified(identifyTraits.get());
+        } else {
+            identifying.put(messageId.toString(), identifyTraits.get());
+        }
+    }
+
+    private void onDelivery(Message message, boolean delivered) {
+        IdentifyTraits traits = identifying.remove(String.valueOf(message.messageId()));
+        if (traits != null && delivered) {
+            markIdentified(traits);
+        }
+    }
+
     /**
      * Saves the given identify traits to persistence if persistence exists.
      *
-     * @param identifyTraits the traits to save
-     * @return true if saving occurred or no persistence was present.
+     * @param identifyTraits the traits that were sent
      */
-    private synchronized boolean haveChanged(IdentifyTraits identifyTraits, IdentifyTraitsPersistence persistence) {
-        if (identifyTraitsPersistence != null) {
-            if (identifyTraits.equals(persistence.get())) {
-                return false;
-            } else {
-                persistence.set(identifyTraits);
-            }
+    private synchronized void markIdentified(IdentifyTraits identifyTraits) {
+        identified.set(identifyTraits);
+        if (identifyTraitsPersistence != null
+                && !identifyTraits.equals(identifyTraitsPersistence.get())) {
+            identifyTraitsPersistence.set(identifyTraits);
         }
-        return true;
     }
 
     private Map<String, ?> addIdentifyTraits(final IdentifyTraits identifyTraits, final Map<String, String> properties) {
@@ -171,7 +253,18 @@ public class SegmentBroker implements IMessageBroker {
                 .context(context);
     }
 
+    /**
+     * @return event properties layered on top of the static track properties, without copying either of them
+     */
     private Map<String, ?> addTrackProperties(final Map<String, String> properties) {
+        if (properties == null) {
+            return trackProperties.get();
+        }
+        return new OverlayMap<>(properties, trackProperties.get());
+    }
+
+    private Map<String, String> createTrackProperties(Environment environment) {
+        Map<String, String> properties = new HashMap<>();
         Application application = environment.getIde();
         putIfNotNull(PROP_APP_NAME, application.getName(), properties);
         putIfNotNull(PROP_APP_VERSION, application.getVersion(), properties);
@@ -179,7 +272,7 @@ public class SegmentBroker implements IMessageBroker {
                 appProperty -> putIfNotNull(appProperty.getKey(), String.valueOf(appProperty.getValue()), properties));
         putIfNotNull(PROP_EXTENSION_NAME, environment.getPlugin().getName(), properties);
         putIfNotNull(PROP_EXTENSION_VERSION, environment.getPlugin().getVersion(), properties);
-        return properties;
+        return Collections.unmodifiableMap(properties);
     }
 
     private MessageBuilder toMessage(PageMessage.Builder builder, TelemetryEvent event, Map<String, Object> context) {
@@ -199,7 +292,7 @@ public class SegmentBroker implements IMessageBroker {
     }
 
     private Map<String, Object> createContext(Environment environment) {
-        return new MapBuilder()
+        return immutable(new MapBuilder()
                 .mapPair(PROP_APP)
                     .pair(PROP_NAME, environment.getIde().getName())
                     .pair(PROP_VERSION, environment.getIde().getVersion())
@@ -215,7 +308,18 @@ public class SegmentBroker implements IMessageBroker {
                     .pair(PROP_VERSION, environment.getPlatform().getVersion())
                     .build()
                 .pair(PROP_TIMEZONE, environment.getTimezone())
-                .build();
+                .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> immutable(Map<String, Object> map) {
+        map.replaceAll((key, value) -> value instanceof Map ? immutable((Map<String, Object>) value) : value);
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public boolean isOnline() {
+        return delivery == null || delivery.online;
     }
 
     public void dispose() {
@@ -232,11 +336,66 @@ public class SegmentBroker implements IMessageBroker {
         }
     }
 
+    /**
+     * Tracks whether the last message delivered by the Segment client succeeded
+     * and completes the deliveries expected by message id
+     */
+    private static class DeliveryCallback implements Callback {
+
+        private volatile boolean online = true;
+        private volatile BiConsumer<Message, Boolean> listener;
+        private final Map<String, CompletableFuture<Boolean>> expected = new ConcurrentHashMap<>();
+
+        CompletableFuture<Boolean> expect(UUID messageId) {
+            String key = messageId.toString();
+            CompletableFuture<Boolean> delivered = new CompletableFuture<>();
+            // also removed when the waiting sender gives up and cancels it
+            delivered.whenComplete((result, error) -> expected.remove(key, delivered));
+            expected.put(key, delivered);
+            return delivered;
+        }
+
+        @Override
+        public void success(Message message) {
+            online = true;
+            complete(message, true);
+        }
+
+        @Override
+        public void failure(Message message, Throwable throwable) {
+            LOGGER.debug("Could not deliver " + message.type() + " message to segment.", throwable);
+            online = false;
+            complete(message, false);
+        }
+
+        private void complete(Message message, boolean delivered) {
+            BiConsumer<Message, Boolean> listener = this.listener;
+            if (listener != null) {
+                listener.accept(message, delivered);
+            }
+            CompletableFuture<Boolean> future = expected.get(String.valueOf(message.messageId()));
+            if (future != null) {
+                future.complete(delivered);
+            }
+        }
+    }
+
+    private enum Outcome {
+        ENQUEUED,
+        // nothing to send, e.g. an identify message that was delivered already
+        DELIVERED,
+        // no analytics instance to send with
+        UNAVAILABLE,
+        INVALID
+    }
+
     private static class AnalyticsFactory implements Function<String, Analytics> {
 
         private static final int FLUSH_INTERVAL = 10000;
         private static final int FLUSH_QUEUE_SIZE = 10;
 
+        private final DeliveryCallback delivery = new DeliveryCallback();
+
         @Override
         public Analytics apply(String writeKey) {
             if (writeKey == null) {
@@ -247,6 +406,7 @@ public class SegmentBroker implements IMessageBroker {
             return Analytics.builder(writeKey)
                     .flushQueueSize(FLUSH_QUEUE_SIZE)
                     .flushInterval(FLUSH_INTERVAL, TimeUnit.MILLISECONDS)
+                    .callback(delivery)
                     .build();
         }
     }
@@ -27,7 +27,10 @@ public class SegmentConfiguration extends CompositeConfiguration implements ISeg
     private static final String SEGMENT_PROPERTIES = "segment.properties";
     private static final String SEGMENT_DEFAULTS_PROPERTIES = "segment-defaults.properties";
 
+    private final SystemProperties systemProperties = new SystemProperties();
     private final ClasspathConfiguration consumerClasspathConfiguration;
+    private final ClasspathConfiguration defaultsClasspathConfiguration =
+            new ClasspathConfiguration(Paths.get(SEGMENT_DEFAULTS_PROPERTIES), getClass().getClassLoader());
 
     public SegmentConfiguration(ClassLoader classLoader) {
         this(new ClasspathConfiguration(Paths.get(SEGMENT_PROPERTIES), classLoader));
@@ -40,16 +43,17 @@ public class SegmentConfiguration extends CompositeConfiguration implements ISeg
     @Override
     public void put(String key, String value) {
         consumerClasspathConfiguration.put(key, value);
+        invalidate();
     }
 
     @Override
     public List<IConfiguration> getConfigurations() {
         return Arrays.asList(
-                new SystemProperties(),
+                systemProperties,
                 // segment.properties in consuming plugin
                 consumerClasspathConfiguration,
                 // segment-defaults.properties in this plugin
-                new ClasspathConfiguration(Paths.get(SEGMENT_DEFAULTS_PROPERTIES), getClass().getClassLoader()));
+                defaultsClasspathConfiguration);
     }
 
     @Override
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.spool;
+
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.IMessageBroker;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.TelemetryEvent;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Broker writing events to a {@link TelemetrySpool} and forwarding them to the delegate broker from a background sender.
+ * Senders only pay for appending to the memory-mapped spool. Events not forwarded yet survive network outages
+ * and IDE restarts, while the delegate is offline the sender backs off and retries later.
+ * A batch stays in the spool until the delegate confirmed the delivery of all its events, events of a batch sent again
+ * keep their message ids so the duplicates are dropped.
+ */
+public class SpoolingMessageBroker implements IMessageBroker {
+
+    private static final Logger LOGGER = Logger.getInstance(SpoolingMessageBroker.class);
+
+    private static final int BATCH_SIZE = 20;
+    private static final int FINAL_BATCHES = 5;
+    private static final long SEND_INTERVAL_MILLIS = 2_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 30_000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000;
+    // Segment client uploads a partial queue every 10 seconds and retries failed uploads on its own
+    private static final long DELIVERY_TIMEOUT_MILLIS = 30_000;
+    private static final long FINAL_DELIVERY_TIMEOUT_MILLIS = 2_000;
+
+    private final IMessageBroker delegate;
+    private final TelemetrySpool spool;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Telemetry spool sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // accessed by the sender thread only
+    private long backoffMillis;
+    private long nextAttemptMillis;
+
+    public SpoolingMessageBroker(IMessageBroker delegate, TelemetrySpool spool) {
+        this.delegate = delegate;
+        this.spool = spool;
+        sender.scheduleWithFixedDelay(this::sendSpooled, SEND_INTERVAL_MILLIS, SEND_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(TelemetryEvent event) {
+        try {
+            if (spool.append(gson.toJson(event).getBytes(StandardCharsets.UTF_8))) {
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not spool " + event.getName() + " event.", e);
+        }
+        delegate.send(event);
+    }
+
+    private void sendSpooled() {
+        try {
+            long now = System.currentTimeMillis();
+            if (!delegate.isOnline()) {
+                if (now < nextAttemptMillis) {
+                    return;
+                }
+                backoffMillis = backoffMillis == 0 ? INITIAL_BACKOFF_MILLIS : Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+                nextAttemptMillis = now + backoffMillis;
+                // one batch probes whether the delegate is back online, it stays spooled unless it was delivered
+                sendBatch();
+                return;
+            }
+            backoffMillis = 0;
+            while (delegate.isOnline() && sendBatch()) {
+                // drain until the spool is empty or the delegate goes offline
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not send spooled telemetry events.", e);
+        }
+    }
+
+    /**
+     * @return true when a full batch was delivered and more events may be waiting
+     */
+    private boolean sendBatch() throws IOException {
+        TelemetrySpool.Batch batch = spool.read(BATCH_SIZE);
+        if (!awaitDelivered(deliver(batch), DELIVERY_TIMEOUT_MILLIS)) {
+            // the batch is read again by the next attempt
+            return false;
+        }
+        spool.commit(batch);
+        return batch.getRecords().size() == BATCH_SIZE;
+    }
+
+    private List<CompletableFuture<Boolean>> deliver(TelemetrySpool.Batch batch) {
+        List<CompletableFuture<Boolean>> deliveries = new ArrayList<>(batch.getRecords().size());
+        for (byte[] record : batch.getRecords()) {
+            TelemetryEvent event;
+            try {
+                event = gson.fromJson(new String(record, StandardCharsets.UTF_8), TelemetryEvent.class);
+            } catch (JsonParseException e) {
+                LOGGER.debug("Skipping unreadable spooled telemetry event.", e);
+                continue;
+            }
+            // derived from the record, an event sent again has the same id
+            deliveries.add(delegate.deliver(event, UUID.nameUUIDFromBytes(record)));
+        }
+        return deliveries;
+    }
+
+    private static boolean awaitDelivered(List<CompletableFuture<Boolean>> deliveries, long timeoutMillis) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0]));
+        try {
+            all.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return deliveries.stream().allMatch(CompletableFuture::join);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.debug("Could not confirm delivery of spooled telemetry events.", e);
+        }
+        deliveries.forEach(delivery -> delivery.cancel(false));
+        return false;
+    }
+
+    @Override
+    public boolean isOnline() {
+        return delegate.isOnline();
+    }
+
+    @Override
+    public void dispose() {
+        sender.shutdown();
+        TelemetrySpool.Batch batch = null;
+        List<CompletableFuture<Boolean>> deliveries = null;
+        try {
+            if (sender.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (delegate.isOnline()) {
+                    batch = spool.read(FINAL_BATCHES * BATCH_SIZE);
+                    deliveries = deliver(batch);
+                }
+            } else {
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not send spooled telemetry events.", e);
+        }
+        // last events, e.g. the shutdown event, go out with the final flush of the delegate
+        delegate.dispose();
+        try {
+            if (batch != null && awaitDelivered(deliveries, FINAL_DELIVERY_TIMEOUT_MILLIS)) {
+                spool.commit(batch);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not commit sent telemetry events.", e);
+        }
+        // events left in the spool are sent in the next session
+        spool.close();
+    }
+}
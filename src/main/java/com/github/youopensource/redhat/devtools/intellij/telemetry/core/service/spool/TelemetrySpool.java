@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only spool of records in memory-mapped segment files.
+ * Every record is stored as {@code [length][crc32][bytes]}, a zero length marks the end of written data,
+ * so a record torn by a crash is detected and dropped on the next start.
+ * The read position is kept in a separate mapped cursor file. Segments are rotated when full,
+ * deleted once the cursor moved past them, and the oldest segment is dropped when the spool exceeds its size cap.
+ * <p>
+ * {@link #read(int)} and {@link #commit(Batch)} are meant for a single sender thread.
+ */
+public class TelemetrySpool implements Closeable {
+
+    static final int SEGMENT_BYTES = 256 * 1024;
+    static final int MAX_SEGMENTS = 8;
+    static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int CURSOR_BYTES = 12;
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String CURSOR_FILE = "cursor";
+    private static final String LOCK_FILE = "lock";
+
+    private final Path directory;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final MappedByteBuffer cursor;
+    private final FileLock lock;
+    private long writeSegment;
+    private int writeOffset;
+    private long readSegment;
+    private int readOffset;
+    private long dropped;
+    private boolean closed;
+
+    private TelemetrySpool(Path directory, MappedByteBuffer cursor, FileLock lock) {
+        this.directory = directory;
+        this.cursor = cursor;
+        this.lock = lock;
+    }
+
+    /**
+     * @throws IOException when the spool cannot be mapped or is used by another IDE process
+     */
+    public static TelemetrySpool open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Telemetry spool at " + directory + " is used by another process");
+            }
+            TelemetrySpool spool = new TelemetrySpool(directory, map(directory.resolve(CURSOR_FILE), CURSOR_BYTES), lock);
+            spool.recover();
+            return spool;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private void recover() throws IOException {
+        long savedSegment = cursor.getLong(0);
+        int savedOffset = cursor.getInt(8);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                long sequence = sequenceOf(file);
+                if (sequence >= savedSegment) {
+                    segments.put(sequence, map(file, SEGMENT_BYTES));
+                } else if (sequence >= 0) {
+                    // consumed segment whose deletion failed in the last session, it is not mapped so it can go now
+                    deleteSegmentFile(sequence);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(savedSegment, map(segmentFile(savedSegment), SEGMENT_BYTES));
+        }
+        writeSegment = segments.lastKey();
+        MappedByteBuffer last = segments.get(writeSegment);
+        writeOffset = endOf(last, 0);
+        // clear a record torn by a crash, so it cannot show up behind the records appended over it
+        for (int i = writeOffset; i < SEGMENT_BYTES && i < writeOffset + HEADER_BYTES + MAX_RECORD_BYTES; i++) {
+            last.put(i, (byte) 0);
+        }
+
+        if (segments.containsKey(savedSegment)) {
+            readSegment = savedSegment;
+            readOffset = Math.min(savedOffset, endOf(segments.get(savedSegment), 0));
+        } else {
+            // segment of the cursor was dropped, continue with the next one
+            readSegment = segments.ceilingKey(savedSegment);
+            readOffset = 0;
+        }
+        storeCursor();
+        deleteConsumedSegments();
+    }
+
+    /**
+     * @return false when the record is too large for the spool, the record is then not stored
+     */
+    public synchronized boolean append(byte[] record) throws IOException {
+        if (closed || record.length == 0 || record.length > MAX_RECORD_BYTES) {
+            return false;
+        }
+        if (writeOffset + HEADER_BYTES + record.length > SEGMENT_BYTES) {
+            rotate();
+        }
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(writeOffset + HEADER_BYTES);
+        payload.put(record);
+        buffer.putInt(writeOffset + 4, (int) crc.getValue());
+        // length goes last, a record is visible only when it is complete
+        buffer.putInt(writeOffset, record.length);
+        writeOffset += HEADER_BYTES + record.length;
+        return true;
+    }
+
+    private void rotate() throws IOException {
+        while (segments.size() >= MAX_SEGMENTS) {
+            dropOldestSegment();
+        }
+        writeSegment++;
+        writeOffset = 0;
+        segments.put(writeSegment, map(segmentFile(writeSegment), SEGMENT_BYTES));
+    }
+
+    private void dropOldestSegment() throws IOException {
+        Map.Entry<Long, MappedByteBuffer> oldest = segments.pollFirstEntry();
+        if (oldest.getKey() == readSegment) {
+            dropped += countRecords(oldest.getValue(), readOffset);
+            readSegment = segments.firstKey();
+            readOffset = 0;
+            storeCursor();
+        }
+        deleteSegmentFile(oldest.getKey());
+    }
+
+    /**
+     * @return up to {@code max} records following the cursor, the cursor moves only by {@link #commit(Batch)}
+     */
+    public synchronized Batch read(int max) {
+        List<byte[]> records = new ArrayList<>();
+        long segment = readSegment;
+        int offset = readOffset;
+        while (records.size() < max && !closed) {
+            byte[] record = readRecord(segments.get(segment), offset);
+            if (record != null) {
+                records.add(record);
+                offset += HEADER_BYTES + record.length;
+                continue;
+            }
+            Long next = segments.higherKey(segment);
+            if (next == null) {
+                break;
+            }
+            segment = next;
+            offset = 0;
+        }
+        return new Batch(records, segment, offset);
+    }
+
+    /**
+     * Moves the cursor behind the records of the batch and deletes segments it left
+     */
+    public synchronized void commit(Batch batch) throws IOException {
+        if (closed || batch.segment < readSegment || (batch.segment == readSegment && batch.offset <= readOffset)) {
+            return;
+        }
+        if (!segments.containsKey(batch.segment)) {
+            // batch segment was dropped by the size cap meanwhile
+            return;
+        }
+        readSegment = batch.segment;
+        readOffset = batch.offset;
+        storeCursor();
+        deleteConsumedSegments();
+        if (readSegment == writeSegment && readOffset == writeOffset && writeOffset > SEGMENT_BYTES / 4) {
+            // everything is sent, start an empty segment so the used one can be deleted
+            rotate();
+            readSegment = writeSegment;
+            readOffset = 0;
+            storeCursor();
+            deleteConsumedSegments();
+        }
+    }
+
+    private void deleteConsumedSegments() throws IOException {
+        while (segments.firstKey() < readSegment) {
+            long sequence = segments.pollFirstEntry().getKey();
+            deleteSegmentFile(sequence);
+        }
+    }
+
+    private void storeCursor() {
+        cursor.putLong(0, readSegment);
+        cursor.putInt(8, readOffset);
+    }
+
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readOffset == writeOffset;
+    }
+
+    /**
+     * @return number of records dropped unsent because the spool exceeded its size cap
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.values().forEach(MappedByteBuffer::force);
+        cursor.force();
+        try {
+            lock.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @return offset behind the last complete record written after given offset
+     */
+    private static int endOf(ByteBuffer buffer, int offset) {
+        byte[] record;
+        while ((record = readRecord(buffer, offset)) != null) {
+            offset += HEADER_BYTES + record.length;
+        }
+        return offset;
+    }
+
+    private static int countRecords(ByteBuffer buffer, int offset) {
+        int count = 0;
+        byte[] record;
+        while ((record = readRecord(buffer, offset)) != null) {
+            offset += HEADER_BYTES + record.length;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return complete record at given offset, {@code null} at the end of written data or at a torn record
+     */
+    private static byte[] readRecord(ByteBuffer buffer, int offset) {
+        if (offset + HEADER_BYTES > SEGMENT_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > MAX_RECORD_BYTES || offset + HEADER_BYTES + length > SEGMENT_BYTES) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(offset + HEADER_BYTES);
+        payload.get(record);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? record : null;
+    }
+
+    /**
+     * A segment mapped in this process cannot be deleted on Windows, the file is left for the next open.
+     * It is behind the stored cursor by then, so its records are not read again.
+     */
+    private void deleteSegmentFile(long sequence) {
+        try {
+            Files.deleteIfExists(segmentFile(sequence));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path segmentFile(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Records read from the spool together with the position behind them
+     */
+    public static class Batch {
+
+        private final List<byte[]> records;
+        private final long segment;
+        private final int offset;
+
+        private Batch(List<byte[]> records, long segment, int offset) {
+            this.records = Collections.unmodifiableList(records);
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        public List<byte[]> getRecords() {
+            return records;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+}
@@ -29,20 +29,18 @@ public class AnonymizeUtils {
     public static final String ANONYMOUS_IP = "<IP>";
     public static final String ANONYMOUS_RESOURCENAME = "<RESOURCENAME>";
     public static final String ANONYMOUS_NAMESPACE = "<NAMESPACE>";
+    private static final Anonymizer ANONYMIZER = new Anonymizer(TMP_DIR, HOME_DIR, USER_NAME);
 
     private AnonymizeUtils() {
     }
 
+    /**
+     * Replaces tmp dir, home dir, IP addresses, user name and email addresses in a single scan.
+     * The result is the same as applying {@link #anonymizeTmpDir}, {@link #anonymizeHomeDir}, {@link #anonymizeIP},
+     * {@link #anonymizeUserName} and {@link #anonymizeEmail} in this order.
+     */
     public static String anonymize(String string) {
-        return anonymizeEmail(
-                anonymizeUserName(
-                        anonymizeIP(
-                                anonymizeHomeDir(
-                                        anonymizeTmpDir(string)
-                                )
-                        )
-                )
-        );
+        return ANONYMIZER.anonymize(string);
     }
 
     public static String anonymizeResource(String name, String namespace, String string) {
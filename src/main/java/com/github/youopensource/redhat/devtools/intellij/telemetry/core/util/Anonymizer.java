@@ -0,0 +1,440 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.util;
+
+import java.util.Arrays;
+
+import static com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.AnonymizeUtils.ANONYMOUS_EMAIL;
+import static com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.AnonymizeUtils.ANONYMOUS_HOMEDIR;
+import static com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.AnonymizeUtils.ANONYMOUS_IP;
+import static com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.AnonymizeUtils.ANONYMOUS_TMPDIR;
+import static com.github.youopensource.redhat.devtools.intellij.telemetry.core.util.AnonymizeUtils.ANONYMOUS_USER_NAME;
+
+/**
+ * Replaces tmp dir, home dir, IP addresses, user name and email addresses in one scan, with the same result
+ * as applying the single replacements of {@link AnonymizeUtils} one after another.
+ * <p>
+ * Literal paths and the user name are found by one Aho-Corasick sweep. Matches are then resolved in the order
+ * of the chained replacements, IP and email recognizers mirror the backtracking of the former regular expressions.
+ * A resolved match becomes a placeholder that later recognizers cannot see into, exactly as the placeholder text
+ * of an earlier replacement could not be part of a later match. Literals that contain {@code <} or {@code >}
+ * or occur in a placeholder could match placeholder text, for those the chained replacements are used.
+ */
+public class Anonymizer {
+
+    private static final int TMP_DIR = 0;
+    private static final int HOME_DIR = 1;
+    private static final int USER_NAME = 2;
+
+    private static final byte TOKEN_TMP_DIR = 1;
+    private static final byte TOKEN_HOME_DIR = 2;
+    private static final byte TOKEN_IP = 3;
+    private static final byte TOKEN_USER_NAME = 4;
+    private static final byte TOKEN_EMAIL = 5;
+    private static final String[] TOKENS = {
+            null, ANONYMOUS_TMPDIR, ANONYMOUS_HOMEDIR, ANONYMOUS_IP, ANONYMOUS_USER_NAME, ANONYMOUS_EMAIL
+    };
+
+    private static final int MAX_EMAIL_TLD = 6;
+
+    private final String[] literals;
+    private final boolean chained;
+    private final Automaton automaton;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public Anonymizer(String tmpDir, String homeDir, String userName) {
+        this.literals = new String[]{tmpDir, homeDir, userName};
+        this.chained = !isPlain(tmpDir) || !isPlain(homeDir) || !isPlain(userName);
+        this.automaton = chained ? null : new Automaton(literals);
+    }
+
+    private static boolean isPlain(String literal) {
+        if (literal == null
+                || literal.isEmpty()
+                || literal.indexOf('<') >= 0
+                || literal.indexOf('>') >= 0) {
+            return false;
+        }
+        for (int i = 1; i < TOKENS.length; i++) {
+            if (TOKENS[i].contains(literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String anonymize(String string) {
+        if (string == null
+                || string.isEmpty()) {
+            return string;
+        }
+        if (chained) {
+            String replaced = AnonymizeUtils.anonymizeIP(
+                    string.replace(literals[TMP_DIR], ANONYMOUS_TMPDIR)
+                            .replace(literals[HOME_DIR], ANONYMOUS_HOMEDIR));
+            return AnonymizeUtils.anonymizeEmail(replaced.replace(literals[USER_NAME], ANONYMOUS_USER_NAME));
+        }
+        Scratch scratch = this.scratch.get();
+        scratch.reset(string);
+        automaton.findAll(string, scratch);
+        select(TMP_DIR, TOKEN_TMP_DIR, scratch);
+        select(HOME_DIR, TOKEN_HOME_DIR, scratch);
+        findIps(scratch);
+        select(USER_NAME, TOKEN_USER_NAME, scratch);
+        findEmails(scratch);
+        if (!scratch.hasTokens) {
+            return string;
+        }
+        return scratch.write();
+    }
+
+    /**
+     * Takes leftmost non-overlapping occurrences of the literal outside of placeholders, like {@link String#replace}
+     */
+    private void select(int literal, byte token, Scratch scratch) {
+        int length = literals[literal].length();
+        int end = 0;
+        for (int i = 0; i < scratch.occurrenceCount; i++) {
+            if (scratch.occurrenceLiterals[i] != literal) {
+                continue;
+            }
+            int start = scratch.occurrenceStarts[i];
+            if (start >= end && scratch.isFree(start, start + length)) {
+                scratch.cover(start, start + length, token);
+                end = start + length;
+            }
+        }
+    }
+
+    /**
+     * Mirrors {@code (([01]?\d\d?|2[0-4]\d|25[0-5])\.){3}([01]?\d\d?|2[0-4]\d|25[0-5])}
+     */
+    private void findIps(Scratch scratch) {
+        int length = scratch.string.length();
+        int start = 0;
+        while (start < length) {
+            int end = isDigit(scratch.at(start)) ? matchOctets(scratch, start, 0) : -1;
+            if (end > 0) {
+                scratch.cover(start, end, TOKEN_IP);
+                start = end;
+            } else {
+                start++;
+            }
+        }
+    }
+
+    /**
+     * @return end of the match of the remaining octets starting with the given one, -1 when there is none
+     */
+    private static int matchOctets(Scratch scratch, int position, int octet) {
+        char first = scratch.at(position);
+        char second = scratch.at(position + 1);
+        char third = scratch.at(position + 2);
+        // candidate lengths in the order the regular expression tries its alternatives
+        int[] candidates = scratch.candidates[octet];
+        int count = 0;
+        if (first == '0' || first == '1') {
+            if (isDigit(second)) {
+                if (isDigit(third)) {
+                    candidates[count++] = 3;
+                }
+                candidates[count++] = 2;
+            }
+        }
+        if (isDigit(first)) {
+            if (isDigit(second)) {
+                candidates[count++] = 2;
+            }
+            candidates[count++] = 1;
+        }
+        if (first == '2' && second >= '0' && second <= '4' && isDigit(third)) {
+            candidates[count++] = 3;
+        }
+        if (first == '2' && second == '5' && third >= '0' && third <= '5') {
+            candidates[count++] = 3;
+        }
+        for (int i = 0; i < count; i++) {
+            int end = position + candidates[i];
+            if (octet == 3) {
+                return end;
+            }
+            if (scratch.at(end) == '.') {
+                int match = matchOctets(scratch, end + 1, octet + 1);
+                if (match > 0) {
+                    return match;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mirrors {@code [A-Z0-9._%+-]+@[A-Z0-9.-]+\.[A-Z]{2,6}} matched case insensitive
+     */
+    private void findEmails(Scratch scratch) {
+        int length = scratch.string.length();
+        int start = 0;
+        while (start < length) {
+            if (!isLocalPart(scratch.at(start))) {
+                start++;
+                continue;
+            }
+            int at = start;
+            while (isLocalPart(scratch.at(at))) {
+                at++;
+            }
+            int end = scratch.at(at) == '@' ? matchDomain(scratch, at + 1) : -1;
+            if (end > 0) {
+                scratch.cover(start, end, TOKEN_EMAIL);
+                start = end;
+            } else {
+                // no start within the same run can reach another '@'
+                start = at + 1;
+            }
+        }
+    }
+
+    private static int matchDomain(Scratch scratch, int position) {
+        int end = position;
+        while (isDomain(scratch.at(end))) {
+            end++;
+        }
+        // greedy domain backs off to the last dot followed by at least two letters
+        for (int dot = end - 1; dot > position; dot--) {
+            if (scratch.at(dot) != '.') {
+                continue;
+            }
+            int letters = 0;
+            while (letters < MAX_EMAIL_TLD && isLetter(scratch.at(dot + 1 + letters))) {
+                letters++;
+            }
+            if (letters >= 2) {
+                return dot + 1 + letters;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDomain(char c) {
+        return isLetter(c) || isDigit(c) || c == '.' || c == '-';
+    }
+
+    private static boolean isLocalPart(char c) {
+        return isDomain(c) || c == '_' || c == '%' || c == '+';
+    }
+
+    /**
+     * Per-thread buffers reused by every call
+     */
+    private static class Scratch {
+
+        private static final int INITIAL_COVERED_BYTES = 256;
+        private static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+        private final StringBuilder builder = new StringBuilder();
+        private final int[][] candidates = new int[4][6];
+        private String string;
+        // 0 for plain text, token at the first char of a placeholder and minus token at the other chars
+        private byte[] covered = new byte[INITIAL_COVERED_BYTES];
+        private int coveredLength;
+        private boolean hasTokens;
+        private int[] occurrenceStarts = new int[16];
+        private byte[] occurrenceLiterals = new byte[16];
+        private int occurrenceCount;
+
+        void reset(String string) {
+            this.string = string;
+            int length = string.length();
+            if (covered.length < length) {
+                covered = new byte[Math.max(length, covered.length * 2)];
+            } else if (covered.length > MAX_RETAINED_BYTES) {
+                // like the builder, buffers of a huge message are not kept for the lifetime of the thread
+                covered = new byte[Math.max(length, INITIAL_COVERED_BYTES)];
+            } else if (hasTokens) {
+                // placeholders can only be within the previous string
+                Arrays.fill(covered, 0, coveredLength, (byte) 0);
+            }
+            coveredLength = length;
+            hasTokens = false;
+            occurrenceCount = 0;
+        }
+
+        void addOccurrence(int start, int literal) {
+            if (occurrenceCount == occurrenceStarts.length) {
+                occurrenceStarts = Arrays.copyOf(occurrenceStarts, occurrenceCount * 2);
+                occurrenceLiterals = Arrays.copyOf(occurrenceLiterals, occurrenceCount * 2);
+            }
+            occurrenceStarts[occurrenceCount] = start;
+            occurrenceLiterals[occurrenceCount] = (byte) literal;
+            occurrenceCount++;
+        }
+
+        /**
+         * @return char at given position, 0 outside of the string or inside of a placeholder
+         */
+        char at(int position) {
+            if (position < 0 || position >= string.length() || covered[position] != 0) {
+                return 0;
+            }
+            return string.charAt(position);
+        }
+
+        boolean isFree(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (covered[i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void cover(int start, int end, byte token) {
+            covered[start] = token;
+            for (int i = start + 1; i < end; i++) {
+                covered[i] = (byte) -token;
+            }
+            hasTokens = true;
+        }
+
+        String write() {
+            builder.setLength(0);
+            int length = string.length();
+            int plain = 0;
+            for (int i = 0; i < length; i++) {
+                byte token = covered[i];
+                if (token > 0) {
+                    builder.append(string, plain, i).append(TOKENS[token]);
+                }
+                if (token != 0) {
+                    plain = i + 1;
+                }
+            }
+            builder.append(string, plain, length);
+            if (builder.capacity() > MAX_RETAINED_BYTES) {
+                String result = builder.toString();
+                builder.setLength(0);
+                builder.trimToSize();
+                return result;
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over a few literals, every node knows the literals ending in it
+     */
+    private static class Automaton {
+
+        private char[][] labels = new char[1][0];
+        private int[][] targets = new int[1][0];
+        private int[] failure = new int[1];
+        private int[] outputs = new int[1];
+        private int nodes = 1;
+        private final int[] lengths;
+
+        Automaton(String[] literals) {
+            lengths = new int[literals.length];
+            for (int literal = 0; literal < literals.length; literal++) {
+                lengths[literal] = literals[literal].length();
+                int node = 0;
+                for (int i = 0; i < literals[literal].length(); i++) {
+                    char c = literals[literal].charAt(i);
+                    int next = child(node, c);
+                    node = next >= 0 ? next : addChild(node, c);
+                }
+                outputs[node] |= 1 << literal;
+            }
+            buildFailureLinks();
+        }
+
+        private int addChild(int node, char c) {
+            if (nodes == failure.length) {
+                labels = Arrays.copyOf(labels, nodes * 2);
+                targets = Arrays.copyOf(targets, nodes * 2);
+                failure = Arrays.copyOf(failure, nodes * 2);
+                outputs = Arrays.copyOf(outputs, nodes * 2);
+            }
+            int child = nodes++;
+            labels[child] = new char[0];
+            targets[child] = new int[0];
+            int size = labels[node].length;
+            labels[node] = Arrays.copyOf(labels[node], size + 1);
+            targets[node] = Arrays.copyOf(targets[node], size + 1);
+            labels[node][size] = c;
+            targets[node][size] = child;
+            return child;
+        }
+
+        private int child(int node, char c) {
+            char[] nodeLabels = labels[node];
+            for (int i = 0; i < nodeLabels.length; i++) {
+                if (nodeLabels[i] == c) {
+                    return targets[node][i];
+                }
+            }
+            return -1;
+        }
+
+        private void buildFailureLinks() {
+            int[] queue = new int[nodes];
+            int head = 0;
+            int tail = 0;
+            for (int child : targets[0]) {
+                failure[child] = 0;
+                queue[tail++] = child;
+            }
+            while (head < tail) {
+                int node = queue[head++];
+                for (int i = 0; i < labels[node].length; i++) {
+                    char c = labels[node][i];
+                    int child = targets[node][i];
+                    int fallback = failure[node];
+                    while (fallback > 0 && child(fallback, c) < 0) {
+                        fallback = failure[fallback];
+                    }
+                    int next = child(fallback, c);
+                    failure[child] = next >= 0 && next != child ? next : 0;
+                    outputs[child] |= outputs[failure[child]];
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        /**
+         * Records every occurrence of every literal, ordered by end position
+         */
+        void findAll(String string, Scratch scratch) {
+            int node = 0;
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                int next;
+                while ((next = child(node, c)) < 0 && node > 0) {
+                    node = failure[node];
+                }
+                node = next >= 0 ? next : 0;
+                int output = outputs[node];
+                while (output != 0) {
+                    int literal = Integer.numberOfTrailingZeros(output);
+                    scratch.addOccurrence(i + 1 - lengths[literal], literal);
+                    output &= output - 1;
+                }
+            }
+        }
+    }
+}
@@ -28,4 +28,11 @@ public class Lazy<T> implements Supplier<T> {
         }
         return value;
     }
+
+    /**
+     * Drops the value, the next {@link #get()} creates a new one
+     */
+    public void reset() {
+        this.value = null;
+    }
 }
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2021 Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ * Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only view of two maps where entries of the top map hide entries of the base map with the same key.
+ * Neither map is copied, changes of the underlying maps are visible through the view.
+ */
+public class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+    private final Map<K, ? extends V> top;
+    private final Map<K, ? extends V> base;
+
+    public OverlayMap(Map<K, ? extends V> top, Map<K, ? extends V> base) {
+        this.top = top;
+        this.base = base;
+    }
+
+    @Override
+    public V get(Object key) {
+        return top.containsKey(key) ? top.get(key) : base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return top.containsKey(key) || base.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new OverlayIterator();
+            }
+
+            @Override
+            public int size() {
+                int size = top.size();
+                for (K key : base.keySet()) {
+                    if (!top.containsKey(key)) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    private class OverlayIterator implements Iterator<Entry<K, V>> {
+
+        private final Iterator<? extends Entry<K, ? extends V>> topEntries = top.entrySet().iterator();
+        private final Iterator<? extends Entry<K, ? extends V>> baseEntries = base.entrySet().iterator();
+        private Entry<K, V> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (topEntries.hasNext()) {
+                Entry<K, ? extends V> entry = topEntries.next();
+                next = new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                return true;
+            }
+            while (baseEntries.hasNext()) {
+                Entry<K, ? extends V> entry = baseEntries.next();
+                if (!top.containsKey(entry.getKey())) {
+                    next = new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -1,6 +1,28 @@
 package com.github.youopensource.yougitlab.data
 
+import com.intellij.openapi.project.Project
+import java.lang.ref.WeakReference
+
 data class SolutionRequest(
     val codeLine: String?,
     val language: String?,
-)
+    val selection: Boolean = false,
+) {
+    constructor(codeLine: String?, language: String?, selection: Boolean, project: Project?) : this(codeLine, language, selection) {
+        projectRef = project?.let { WeakReference(it) }
+    }
+
+    // the latest request stays in the application wide publishers, it must not keep a closed project alive
+    private var projectRef: WeakReference<Project>? = null
+
+    /**
+     * Project whose local snippet index is searched before you.com, null once the project is closed
+     */
+    val project: Project?
+        get() = projectRef?.get()?.takeUnless { it.isDisposed }
+
+    /**
+     * [System.nanoTime] when the request was created, start of the end-to-end latency of its suggestions
+     */
+    val createdNanos: Long = System.nanoTime()
+}
@@ -2,5 +2,13 @@ package com.github.youopensource.yougitlab.data
 
 data class SolutionResult(
     val solutions: List<Solution>? = null,
-    val language: String? = null
+    val language: String? = null,
+    /**
+     * Solutions continue the previously published result instead of replacing it
+     */
+    val append: Boolean = false,
+    /**
+     * [SolutionRequest.createdNanos] of the request the solutions belong to
+     */
+    val requestNanos: Long = 0
 )
@@ -0,0 +1,191 @@
+package com.github.youopensource.yougitlab.data.cache
+
+import com.github.youopensource.yougitlab.data.CodeSuggestionApiResult
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.intellij.openapi.application.PathManager
+import com.intellij.openapi.diagnostic.Logger
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Two-tier cache of code suggestion results keyed by normalized query and language.
+ * Recent results live in a memory LRU, all results are also stored in a size bounded directory so they survive restarts.
+ * Entries older than [ttlMillis] are treated as missing.
+ */
+class SuggestionCache(
+    private val directory: File?,
+    private val ttlMillis: Long = TimeUnit.HOURS.toMillis(12),
+    private val memoryEntries: Int = 200,
+    private val diskLimitBytes: Long = 16L * 1024 * 1024,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+    private val LOG: Logger = Logger.getInstance(this.javaClass)
+    private val gson = Gson()
+    private val memory = object : LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean = size > memoryEntries
+    }
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val diskLock = Any()
+    // bytes in the disk directory, -1 until the directory was measured
+    private var diskBytes = -1L
+
+    private class Entry(val storedAt: Long, val result: CodeSuggestionApiResult)
+
+    fun get(query: String, language: String?, page: Int = 1): CodeSuggestionApiResult? {
+        val key = key(query, language, page)
+        val now = clock()
+        val entry = synchronized(memory) { memory[key] } ?: readFromDisk(key)
+        if (entry == null || now - entry.storedAt > ttlMillis) {
+            if (entry != null) {
+                remove(key)
+            }
+            misses.incrementAndGet()
+            return null
+        }
+        // entries read from disk move to memory, entries found in memory become the most recently used
+        synchronized(memory) { memory[key] = entry }
+        hits.incrementAndGet()
+        return entry.result
+    }
+
+    fun put(query: String, language: String?, page: Int, result: CodeSuggestionApiResult) {
+        val key = key(query, language, page)
+        val entry = Entry(clock(), result)
+        synchronized(memory) { memory[key] = entry }
+        writeToDisk(key, entry)
+    }
+
+    fun clear() {
+        synchronized(memory) { memory.clear() }
+        synchronized(diskLock) {
+            directory?.listFiles()?.forEach { it.delete() }
+            diskBytes = -1
+        }
+    }
+
+    /**
+     * @return share of lookups answered from the cache, 0 before the first lookup
+     */
+    fun hitRatio(): Double {
+        val total = hits.get() + misses.get()
+        return if (total == 0L) 0.0 else hits.get().toDouble() / total
+    }
+
+    fun getHitCount(): Long = hits.get()
+
+    fun getMissCount(): Long = misses.get()
+
+    private fun readFromDisk(key: String): Entry? {
+        val file = diskFile(key) ?: return null
+        if (!file.isFile) {
+            return null
+        }
+        return try {
+            gson.fromJson(file.readText(Charsets.UTF_8), Entry::class.java)
+        } catch (e: IOException) {
+            deleteFromDisk(file)
+            null
+        } catch (e: JsonParseException) {
+            deleteFromDisk(file)
+            null
+        }
+    }
+
+    private fun remove(key: String) {
+        synchronized(memory) { memory.remove(key) }
+        diskFile(key)?.let { deleteFromDisk(it) }
+    }
+
+    private fun writeToDisk(key: String, entry: Entry) {
+        val file = diskFile(key) ?: return
+        val parent = file.parentFile
+        if (!parent.isDirectory && !parent.mkdirs()) {
+            return
+        }
+        val temp = File(file.path + ".tmp")
+        try {
+            temp.writeText(gson.toJson(entry), Charsets.UTF_8)
+        } catch (e: IOException) {
+            LOG.debug("Cannot store suggestion result", e)
+            temp.delete()
+            return
+        }
+        synchronized(diskLock) {
+            val replaced = file.length()
+            if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+                temp.delete()
+            }
+            addDiskBytes(parent, file.length() - replaced)
+        }
+    }
+
+    private fun deleteFromDisk(file: File) {
+        synchronized(diskLock) {
+            val length = file.length()
+            if (file.delete()) {
+                addDiskBytes(file.parentFile, -length)
+            }
+        }
+    }
+
+    /**
+     * Keeps a running total of the disk tier, the directory is listed only once and when the total exceeds the limit
+     */
+    private fun addDiskBytes(directory: File, delta: Long) {
+        if (diskBytes < 0) {
+            // the first measurement already includes the change
+            diskBytes = directory.listFiles()?.sumOf { it.length() } ?: 0
+        } else {
+            diskBytes += delta
+        }
+        if (diskBytes > diskLimitBytes) {
+            trimDisk(directory)
+        }
+    }
+
+    private fun trimDisk(directory: File) {
+        val files = directory.listFiles()
+        if (files == null) {
+            diskBytes = -1
+            return
+        }
+        var total = files.sumOf { it.length() }
+        for (file in files.sortedBy { it.lastModified() }) {
+            if (total <= diskLimitBytes * 3 / 4) {
+                break
+            }
+            val length = file.length()
+            if (file.delete()) {
+                total -= length
+            }
+        }
+        diskBytes = total
+    }
+
+    private fun diskFile(key: String): File? = directory?.let { File(it, sha256(key)) }
+
+    companion object {
+        val instance: SuggestionCache by lazy {
+            SuggestionCache(File(PathManager.getSystemPath(), "you-suggestions"))
+        }
+
+        private val WHITESPACE = Regex("\\s+")
+
+        /**
+         * Queries differing only in whitespace return the same suggestions, case is kept since `Foo` and `foo`
+         * name different identifiers in code
+         */
+        fun normalize(query: String): String = query.trim().replace(WHITESPACE, " ")
+
+        private fun key(query: String, language: String?, page: Int): String = "${language ?: ""}\n$page\n${normalize(query)}"
+
+        private fun sha256(value: String): String =
+            MessageDigest.getInstance("SHA-256").digest(value.toByteArray(Charsets.UTF_8))
+                .joinToString("") { "%02x".format(it) }
+    }
+}
@@ -1,19 +1,25 @@
 package com.github.youopensource.yougitlab.data.repository
 
 import com.github.youopensource.yougitlab.data.AnalyticsEvent
-import com.github.youopensource.yougitlab.data.CodeSuggestionApiResult
+import com.github.youopensource.yougitlab.data.repository.YouHttpClient.CallOwner
+import okhttp3.ResponseBody
 import retrofit2.Call
 import retrofit2.http.*
 
 interface APIService {
+    /**
+     * Body of {@code CodeSuggestionApiResult}, streamed so results can be decoded while the response arrives
+     */
     @GET("generic?service=codesnippets&version=1&fields=snippet_code%2Curl")
     @Headers("user-agent: youide")
+    @Streaming
     fun getApiResult(
         @Query("query") queryId: String?,
         @Query("size") sizeId: Int,
         @Query("source") sourceId: String?,
-        @Query("page") pageId: Int
-    ): Call<CodeSuggestionApiResult?>
+        @Query("page") pageId: Int,
+        @Tag owner: CallOwner?
+    ): Call<ResponseBody>
 
     @POST("recordEvent")
     fun recordAnalyticsEvent(
@@ -0,0 +1,107 @@
+package com.github.youopensource.yougitlab.data.repository
+
+import com.github.youopensource.yougitlab.data.AnalyticsEvent
+import com.intellij.openapi.diagnostic.Logger
+import java.util.ArrayDeque
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Bounded queue of analytics events drained by a single background flusher.
+ * Events are sent in batches every [flushIntervalMillis] or as soon as [batchSize] events are waiting.
+ * When the queue is full the oldest event is dropped, [close] sends whatever is left.
+ */
+class AnalyticsQueue(
+    private val sender: (AnalyticsEvent) -> Unit,
+    private val capacity: Int = 256,
+    private val batchSize: Int = 20,
+    private val flushIntervalMillis: Long = 10_000
+) {
+    private val LOG: Logger = Logger.getInstance(this.javaClass)
+    private val queue = ArrayDeque<AnalyticsEvent>()
+    private val flushScheduled = AtomicBoolean()
+    private val closed = AtomicBoolean()
+    private val dropped = AtomicLong()
+    private val sent = AtomicLong()
+    private val flusher: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor { runnable ->
+        Thread(runnable, "You.com analytics").apply { isDaemon = true }
+    }
+
+    init {
+        flusher.scheduleWithFixedDelay(::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS)
+    }
+
+    fun offer(event: AnalyticsEvent) {
+        if (closed.get()) {
+            return
+        }
+        val size = synchronized(queue) {
+            if (queue.size >= capacity) {
+                queue.removeFirst()
+                dropped.incrementAndGet()
+            }
+            queue.addLast(event)
+            queue.size
+        }
+        if (size >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute {
+                    flushScheduled.set(false)
+                    flush()
+                }
+            } catch (e: RejectedExecutionException) {
+                // closed meanwhile, the event is sent by the final flush of close or dropped
+            }
+        }
+    }
+
+    private fun flush() {
+        while (true) {
+            val batch = synchronized(queue) {
+                if (queue.isEmpty()) {
+                    return
+                }
+                val batch = ArrayList<AnalyticsEvent>(minOf(queue.size, batchSize))
+                while (batch.size < batchSize && queue.isNotEmpty()) {
+                    batch.add(queue.removeFirst())
+                }
+                batch
+            }
+            for (event in batch) {
+                try {
+                    sender(event)
+                    sent.incrementAndGet()
+                } catch (e: Exception) {
+                    LOG.debug("Cannot send analytics event ${event.eventName}", e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the flusher and sends remaining events, waits at most [timeoutMillis]
+     */
+    fun close(timeoutMillis: Long = 2_000) {
+        if (!closed.compareAndSet(false, true)) {
+            return
+        }
+        flusher.execute(::flush)
+        flusher.shutdown()
+        try {
+            flusher.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    /**
+     * @return number of events dropped because the queue was full
+     */
+    fun getDroppedCount(): Long = dropped.get()
+
+    fun getSentCount(): Long = sent.get()
+}
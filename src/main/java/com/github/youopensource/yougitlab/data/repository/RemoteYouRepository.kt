@@ -1,81 +1,162 @@
 package com.github.youopensource.yougitlab.data.repository
 
 import com.github.youopensource.yougitlab.data.*
+import com.github.youopensource.yougitlab.data.Result
+import com.github.youopensource.yougitlab.data.cache.SuggestionCache
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency.Stage
+import com.github.youopensource.yougitlab.services.AnalyticsService
 import com.github.youopensource.yougitlab.services.TelemetryService
+import com.google.gson.Gson
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
 import io.reactivex.rxjava3.core.Observable
+import okhttp3.ResponseBody
 import retrofit2.Call
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
-import kotlin.concurrent.thread
 
 object RemoteYouRepository {
+    const val PAGE_SIZE = 15
+    private val gson = Gson()
     private val retrofit = Retrofit.Builder()
         .baseUrl("https://you.com/api/")
+        .client(YouHttpClient.client)
         .addConverterFactory(GsonConverterFactory.create())
         .build()
     private val apiService: APIService = retrofit.create(APIService::class.java)
 
-    fun getCodeSuggestions(request: SolutionRequest): Observable<CodeSuggestionApiResult> {
+    /**
+     * Emits results of one page as soon as each of them is decoded from the response
+     *
+     * @param acquire called before the request goes to the network, returning false skips the request
+     */
+    fun getCodeSuggestions(request: SolutionRequest, page: Int = 1, acquire: () -> Boolean = { true }): Observable<Result> {
         if (request.codeLine == null) {
             return Observable.empty()
         }
         return Observable.create {
-            val apiRequest: Call<CodeSuggestionApiResult?> =
-                apiService.getApiResult(request.codeLine, 15, "codesnippets", 1)
-            val telemetry = TelemetryService.instance.action("intellij_user_search")
-                .property("search.param", request.codeLine)
+            val cached = SuggestionCache.instance.get(request.codeLine, request.language, page)
+            if (cached != null) {
+                cached.searchResults?.results?.forEach { result -> it.onNext(result) }
+                it.onComplete()
+                return@create
+            }
+            if (!acquire()) {
+                it.onComplete()
+                return@create
+            }
+            val apiRequest: Call<ResponseBody> =
+                apiService.getApiResult(request.codeLine, PAGE_SIZE, "codesnippets", page, owner(request))
+            // disposing the subscription aborts the request, execute() then fails and the result is dropped
+            it.setCancellable { apiRequest.cancel() }
+            // searches are frequent, they are sent as one summary per minute, the query goes with the search event
+            val telemetry = TelemetryService.instance.aggregatedAction("intellij_user_search")
             try {
                 telemetry.started()
-                val body = apiRequest.execute().body()
+                val body = SuggestionLatency.time(Stage.HTTP) { apiRequest.execute().body() }
                 if (body != null) {
-                    it.onNext(body)
+                    val results = ArrayList<Result>()
+                    // includes reading the body from the network, results are pushed downstream while decoding
+                    SuggestionLatency.time(Stage.DECODE) {
+                        body.use { responseBody ->
+                            readResults(JsonReader(responseBody.charStream())) { result ->
+                                results.add(result)
+                                it.onNext(result)
+                            }
+                        }
+                    }
+                    SuggestionCache.instance.put(request.codeLine, request.language, page, toApiResult(page, results))
                 }
                 telemetry.success()
             } catch (e: Exception) {
+                if (apiRequest.isCanceled) {
+                    return@create
+                }
                 telemetry.error(e)
             }
             telemetry.finished()
             telemetry.send()
-            sendSearchEvent(request.codeLine)
+            if (page == 1) {
+                sendSearchEvent(request.codeLine)
+            }
             it.onComplete()
         }
     }
 
+    private fun owner(request: SolutionRequest): YouHttpClient.CallOwner? =
+        request.project?.let { YouHttpClient.CallOwner.of(it) }
+
+    /**
+     * Walks the response down to {@code searchResults.results} and decodes the results one at a time
+     */
+    private fun readResults(reader: JsonReader, consumer: (Result) -> Unit) {
+        reader.beginObject()
+        while (reader.hasNext()) {
+            if (reader.nextName() != "searchResults" || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue()
+                continue
+            }
+            reader.beginObject()
+            while (reader.hasNext()) {
+                if (reader.nextName() != "results" || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue()
+                    continue
+                }
+                reader.beginArray()
+                while (reader.hasNext()) {
+                    consumer(gson.fromJson(reader, Result::class.java))
+                }
+                reader.endArray()
+            }
+            reader.endObject()
+        }
+        reader.endObject()
+    }
+
+    private fun toApiResult(page: Int, results: List<Result>): CodeSuggestionApiResult {
+        return CodeSuggestionApiResult().apply {
+            this.page = page
+            this.searchResults = SearchResults().apply { this.results = results }
+        }
+    }
+
     private fun sendSearchEvent(codeLine: String) {
-        thread {
-            apiService.recordAnalyticsEvent(
-                AnalyticsEvent(
-                    "intellij_user_search",
-                    EventData(
-                        codeLine
-                    ),
-                    DeviceProperties(
-                        0, 0, 0, 0, true
-                    )
+        AnalyticsService.getInstance().record(
+            AnalyticsEvent(
+                "intellij_user_search",
+                EventData(
+                    codeLine
                 ),
-            ).execute()
-            println("Analytics executed")
-        }
+                DeviceProperties(
+                    0, 0, 0, 0, true
+                )
+            )
+        )
     }
 
     fun sendButtonClickedEvent(solution: Solution) {
-        thread {
-            TelemetryService.instance.action("intellij_user_click")
-                .property("solution.number", solution.number.toString())
-                .property("solution.codeSnippet", solution.codeSnippet)
-                .send()
-            apiService.recordAnalyticsEvent(
-                AnalyticsEvent(
-                    "intellij_user_click",
-                    EventData(
-                        solution.number.toString()
-                    ),
-                    DeviceProperties(
-                        0, 0, 0, 0, true
-                    )
+        TelemetryService.instance.action("intellij_user_click")
+            .property("solution.number", solution.number.toString())
+            .property("solution.codeSnippet", solution.codeSnippet)
+            .send()
+        AnalyticsService.getInstance().record(
+            AnalyticsEvent(
+                "intellij_user_click",
+                EventData(
+                    solution.number.toString()
                 ),
-            ).execute()
-            println("Analytics executed")
-        }
+                DeviceProperties(
+                    0, 0, 0, 0, true
+                )
+            )
+        )
+    }
+
+    /**
+     * Posts one event synchronously, called only by the analytics flusher
+     */
+    fun recordAnalyticsEvent(event: AnalyticsEvent) {
+        apiService.recordAnalyticsEvent(event).execute()
     }
 }
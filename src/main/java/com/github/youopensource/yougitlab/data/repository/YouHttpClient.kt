@@ -0,0 +1,52 @@
+package com.github.youopensource.yougitlab.data.repository
+
+import com.intellij.openapi.application.PathManager
+import com.intellij.openapi.project.Project
+import okhttp3.Cache
+import okhttp3.ConnectionPool
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Single HTTP client of the you.com integration shared by search and analytics calls.
+ * Idle connections are kept long enough for the next suggestion to skip TCP and TLS handshakes,
+ * HTTP/2 multiplexes concurrent calls over one connection and responses are transparently gzip decoded.
+ */
+object YouHttpClient {
+    private const val CACHE_SIZE_BYTES = 10L * 1024 * 1024
+
+    val client: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .connectionPool(ConnectionPool(4, 10, TimeUnit.MINUTES))
+            .protocols(listOf(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .pingInterval(30, TimeUnit.SECONDS)
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(15, TimeUnit.SECONDS)
+            .writeTimeout(10, TimeUnit.SECONDS)
+            .callTimeout(20, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(true)
+            .cache(Cache(File(PathManager.getSystemPath(), "you-http"), CACHE_SIZE_BYTES))
+            .build()
+    }
+
+    /**
+     * Cancels queued and running calls tagged with the owner, calls of other projects keep running
+     */
+    fun cancel(owner: CallOwner) {
+        val dispatcher = client.dispatcher
+        (dispatcher.queuedCalls() + dispatcher.runningCalls())
+            .filter { it.request().tag(CallOwner::class.java) == owner }
+            .forEach { it.cancel() }
+    }
+
+    /**
+     * Tag of the calls made on behalf of one project
+     */
+    data class CallOwner(val projectKey: String) {
+        companion object {
+            fun of(project: Project) = CallOwner(project.locationHash)
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.youopensource.yougitlab.diagnostics
+
+import com.intellij.openapi.actionSystem.AnAction
+import com.intellij.openapi.actionSystem.AnActionEvent
+import com.intellij.openapi.project.DumbAware
+import com.intellij.openapi.ui.Messages
+
+/**
+ * Shows latency percentiles of the suggestion pipeline collected since IDE start
+ */
+class ShowSuggestionLatencyAction : AnAction(), DumbAware {
+
+    override fun actionPerformed(e: AnActionEvent) {
+        val choice = Messages.showDialog(
+            e.project,
+            SuggestionLatency.summary(),
+            "You.com Suggestion Latency",
+            arrayOf("Close", "Reset"),
+            0,
+            Messages.getInformationIcon()
+        )
+        if (choice == 1) {
+            SuggestionLatency.reset()
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.youopensource.yougitlab.diagnostics
+
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.util.concurrency.AppExecutorUtil
+import java.util.EnumMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Timings of every stage of the suggestion pipeline, from caret event to the editor showing the snippet.
+ * Stages are aggregated in histograms for the lifetime of the IDE and summarized in the log every few minutes.
+ */
+object SuggestionLatency {
+    private val LOG: Logger = Logger.getInstance(this.javaClass)
+    private const val SUMMARY_INTERVAL_MINUTES = 10L
+
+    enum class Stage(val description: String) {
+        CARET("Caret event handling"),
+        DEBOUNCE("Debounce wait"),
+        LOCAL_SEARCH("Local index search"),
+        HTTP("HTTP response headers"),
+        DECODE("JSON decode"),
+        FIRST_RESULT("Request to first result"),
+        DOCUMENT("Snippet document creation"),
+        EDITOR("Editor attach"),
+        SHOWN("Request to first result shown"),
+    }
+
+    private val histograms = EnumMap<Stage, LatencyHistogram>(Stage::class.java).apply {
+        Stage.values().forEach { put(it, LatencyHistogram()) }
+    }
+    private var loggedCount = 0L
+
+    init {
+        AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+            ::logSummary, SUMMARY_INTERVAL_MINUTES, SUMMARY_INTERVAL_MINUTES, TimeUnit.MINUTES
+        )
+    }
+
+    fun record(stage: Stage, durationNanos: Long) {
+        histograms[stage]!!.record(durationNanos)
+    }
+
+    /**
+     * Records time elapsed since given [System.nanoTime] value
+     */
+    fun recordSince(stage: Stage, startNanos: Long) {
+        record(stage, System.nanoTime() - startNanos)
+    }
+
+    inline fun <T> time(stage: Stage, block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            recordSince(stage, start)
+        }
+    }
+
+    fun histogram(stage: Stage): LatencyHistogram = histograms[stage]!!
+
+    /**
+     * @return one line per stage with sample count, p50, p95, p99 and max in milliseconds
+     */
+    fun summary(): String {
+        val builder = StringBuilder("Suggestion latency (ms):")
+        for (stage in Stage.values()) {
+            val histogram = histograms[stage]!!
+            builder.append('\n').append(stage.description).append(": ")
+            if (histogram.count == 0L) {
+                builder.append("no samples")
+                continue
+            }
+            builder.append(
+                String.format(
+                    "n=%d p50=%.1f p95=%.1f p99=%.1f max=%.1f",
+                    histogram.count,
+                    histogram.percentileMillis(0.50),
+                    histogram.percentileMillis(0.95),
+                    histogram.percentileMillis(0.99),
+                    histogram.maxMillis
+                )
+            )
+        }
+        return builder.toString()
+    }
+
+    fun reset() {
+        histograms.values.forEach { it.reset() }
+    }
+
+    private fun logSummary() {
+        val count = histograms[Stage.CARET]!!.count
+        if (count == loggedCount) {
+            return
+        }
+        loggedCount = count
+        LOG.info(summary())
+    }
+}
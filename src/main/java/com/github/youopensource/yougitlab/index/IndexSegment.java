@@ -0,0 +1,251 @@
+package com.github.youopensource.yougitlab.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable part of the snippet index stored in one file and read through a memory mapping.
+ * Besides its snippets and their postings a segment lists every source path it covers with the modification stamp
+ * of the indexed version. Paths without snippets mark files that were emptied or deleted.
+ */
+final class IndexSegment {
+
+    private static final int MAGIC = 0x594F5531;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 56;
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int docId, int termFrequency);
+    }
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final long docIndexOffset;
+    private final long termIndexOffset;
+    private final long totalTokens;
+    private final String[] paths;
+    private final long[] stamps;
+
+    private IndexSegment(File file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a snippet index segment " + file);
+        }
+        docCount = buffer.getInt(8);
+        termCount = buffer.getInt(12);
+        int pathCount = buffer.getInt(16);
+        docIndexOffset = buffer.getLong(24);
+        termIndexOffset = buffer.getLong(32);
+        long pathsOffset = buffer.getLong(40);
+        totalTokens = buffer.getLong(48);
+        paths = new String[pathCount];
+        stamps = new long[pathCount];
+        ByteBuffer in = buffer.duplicate();
+        in.position((int) pathsOffset);
+        for (int i = 0; i < pathCount; i++) {
+            paths[i] = readString(in);
+            stamps[i] = in.getLong();
+        }
+    }
+
+    static IndexSegment open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // mapping stays valid after the channel is closed
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param paths every path covered by the segment with modification stamp of the indexed version
+     */
+    static IndexSegment write(File file, List<Snippet> snippets, Map<String, Long> paths) throws IOException {
+        Map<String, Integer> pathIndexes = new HashMap<>();
+        for (String path : paths.keySet()) {
+            pathIndexes.put(path, pathIndexes.size());
+        }
+        TreeMap<String, List<int[]>> postings = new TreeMap<>();
+        int[] lengths = new int[snippets.size()];
+        long totalTokens = 0;
+        for (int docId = 0; docId < snippets.size(); docId++) {
+            Snippet snippet = snippets.get(docId);
+            List<String> terms = SnippetTokenizer.tokenize(snippet.getText(), snippet.getLanguage());
+            lengths[docId] = terms.size();
+            totalTokens += terms.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : terms) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+                postings.computeIfAbsent(frequency.getKey(), key -> new ArrayList<>()).add(new int[]{docId, frequency.getValue()});
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        long[] docOffsets = new long[snippets.size()];
+        long[] termOffsets = new long[postings.size()];
+        long docIndexOffset;
+        long termIndexOffset;
+        long pathsOffset;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.write(new byte[HEADER_SIZE]);
+            for (int docId = 0; docId < snippets.size(); docId++) {
+                Snippet snippet = snippets.get(docId);
+                docOffsets[docId] = out.size();
+                out.writeInt(lengths[docId]);
+                out.writeInt(pathIndexes.get(snippet.getPath()));
+                out.writeInt(snippet.getStartLine());
+                out.writeInt(snippet.getEndLine());
+                writeString(out, snippet.getLanguage());
+                writeString(out, snippet.getText());
+            }
+            int term = 0;
+            for (Map.Entry<String, List<int[]>> entry : postings.entrySet()) {
+                termOffsets[term++] = out.size();
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (int[] posting : entry.getValue()) {
+                    out.writeInt(posting[0]);
+                    out.writeInt(posting[1]);
+                }
+            }
+            pathsOffset = out.size();
+            for (Map.Entry<String, Long> path : paths.entrySet()) {
+                writeString(out, path.getKey());
+                out.writeLong(path.getValue());
+            }
+            docIndexOffset = out.size();
+            for (long offset : docOffsets) {
+                out.writeLong(offset);
+            }
+            termIndexOffset = out.size();
+            for (long offset : termOffsets) {
+                out.writeLong(offset);
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.writeInt(MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeInt(snippets.size());
+            raf.writeInt(postings.size());
+            raf.writeInt(paths.size());
+            raf.writeInt(0);
+            raf.writeLong(docIndexOffset);
+            raf.writeLong(termIndexOffset);
+            raf.writeLong(pathsOffset);
+            raf.writeLong(totalTokens);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot write snippet index segment " + file);
+        }
+        return open(file);
+    }
+
+    /**
+     * Calls consumer with every snippet containing the term
+     */
+    void forEachPosting(String term, PostingConsumer consumer) {
+        int low = 0;
+        int high = termCount - 1;
+        ByteBuffer in = buffer.duplicate();
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            in.position((int) buffer.getLong((int) (termIndexOffset + middle * 8L)));
+            int compare = readString(in).compareTo(term);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    consumer.accept(in.getInt(), in.getInt());
+                }
+                return;
+            }
+        }
+    }
+
+    int length(int docId) {
+        return buffer.getInt(docOffset(docId));
+    }
+
+    int pathIndex(int docId) {
+        return buffer.getInt(docOffset(docId) + 4);
+    }
+
+    Snippet snippet(int docId) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(docOffset(docId) + 4);
+        String path = paths[in.getInt()];
+        int startLine = in.getInt();
+        int endLine = in.getInt();
+        String language = readString(in);
+        return new Snippet(path, language, startLine, endLine, readString(in));
+    }
+
+    private int docOffset(int docId) {
+        return (int) buffer.getLong((int) (docIndexOffset + docId * 8L));
+    }
+
+    /**
+     * @return paths covered by this segment with modification stamps of their indexed versions
+     */
+    Map<String, Long> paths() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < paths.length; i++) {
+            result.put(paths[i], stamps[i]);
+        }
+        return result;
+    }
+
+    String path(int pathIndex) {
+        return paths[pathIndex];
+    }
+
+    int pathCount() {
+        return paths.length;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    long totalTokens() {
+        return totalTokens;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
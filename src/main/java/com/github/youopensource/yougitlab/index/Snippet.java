@@ -0,0 +1,47 @@
+package com.github.youopensource.yougitlab.index;
+
+/**
+ * Lines of one source file stored in the index
+ */
+public final class Snippet {
+
+    private final String path;
+    private final String language;
+    private final int startLine;
+    private final int endLine;
+    private final String text;
+
+    public Snippet(String path, String language, int startLine, int endLine, String text) {
+        this.path = path;
+        this.language = language;
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.text = text;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * @return first line of the snippet, 0 based
+     */
+    public int getStartLine() {
+        return startLine;
+    }
+
+    /**
+     * @return last line of the snippet, 0 based and inclusive
+     */
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,413 @@
+package com.github.youopensource.yougitlab.index;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Local inverted index of source code snippets.
+ * Files are cut into overlapping line windows, every flush of changed files writes a new memory-mapped {@link IndexSegment}
+ * and the newest segments are merged once they grow as large as the segment before them, so every snippet is rewritten
+ * a logarithmic number of times. Newer segments shadow older versions of the same file.
+ * Searches work on an immutable snapshot and never wait for indexing.
+ */
+public class SnippetIndex implements Closeable {
+
+    static final int SNIPPET_LINES = 12;
+    static final int SNIPPET_STEP = 8;
+    static final int MAX_SEGMENTS = 8;
+
+    private static final String MANIFEST = "segments";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final long DELETED = -1;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float SAME_LANGUAGE_BOOST = 1.5f;
+
+    private final File directory;
+    private final Map<String, PendingFile> pending = new LinkedHashMap<>();
+    private volatile State state;
+    private int nextSegment;
+
+    /**
+     * Segments in order from oldest to newest with the segment holding the current version of every path
+     */
+    private static final class State {
+        final List<IndexSegment> segments;
+        final Map<String, IndexSegment> owners;
+        final Map<String, Long> stamps;
+        /**
+         * Number and total length of current snippets, shadowed and deleted versions are not counted
+         */
+        long documents;
+        long tokens;
+
+        State(List<IndexSegment> segments, Map<String, IndexSegment> owners, Map<String, Long> stamps) {
+            this.segments = segments;
+            this.owners = owners;
+            this.stamps = stamps;
+        }
+
+        boolean isLive(IndexSegment segment, int docId) {
+            return owners.get(segment.path(segment.pathIndex(docId))) == segment;
+        }
+    }
+
+    private static final class PendingFile {
+        final long stamp;
+        final String language;
+        final String text;
+
+        PendingFile(long stamp, String language, String text) {
+            this.stamp = stamp;
+            this.language = language;
+            this.text = text;
+        }
+    }
+
+    private SnippetIndex(File directory, State state, int nextSegment) {
+        this.directory = directory;
+        this.state = state;
+        this.nextSegment = nextSegment;
+    }
+
+    /**
+     * Opens index stored in directory, creates empty one when directory does not contain any
+     */
+    public static SnippetIndex open(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create snippet index directory " + directory);
+        }
+        List<IndexSegment> segments = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        File manifest = new File(directory, MANIFEST);
+        int nextSegment = 0;
+        if (manifest.isFile()) {
+            for (String name : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                try {
+                    segments.add(IndexSegment.open(new File(directory, name)));
+                    names.add(name);
+                    nextSegment = Math.max(nextSegment, Integer.parseInt(name.substring(SEGMENT_PREFIX.length())) + 1);
+                } catch (IOException | RuntimeException e) {
+                    // damaged segment, its files are indexed again as changed
+                }
+            }
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().equals(MANIFEST) && !names.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+        return new SnippetIndex(directory, buildState(segments), nextSegment);
+    }
+
+    private static State buildState(List<IndexSegment> segments) {
+        Map<String, IndexSegment> owners = new HashMap<>();
+        Map<String, Long> stamps = new HashMap<>();
+        for (IndexSegment segment : segments) {
+            for (Map.Entry<String, Long> path : segment.paths().entrySet()) {
+                owners.put(path.getKey(), segment);
+                if (path.getValue() == DELETED) {
+                    stamps.remove(path.getKey());
+                } else {
+                    stamps.put(path.getKey(), path.getValue());
+                }
+            }
+        }
+        State state = new State(Collections.unmodifiableList(segments), owners, stamps);
+        for (IndexSegment segment : segments) {
+            for (int docId = 0; docId < segment.docCount(); docId++) {
+                if (state.isLive(segment, docId)) {
+                    state.documents++;
+                    state.tokens += segment.length(docId);
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Schedules new content of the file for the next {@link #flush()}
+     *
+     * @param stamp modification stamp of the content, used by {@link #isCurrent(String, long)}
+     */
+    public void update(String path, long stamp, String language, String text) {
+        synchronized (pending) {
+            pending.put(path, new PendingFile(stamp, language, text));
+        }
+    }
+
+    public void remove(String path) {
+        synchronized (pending) {
+            pending.put(path, new PendingFile(DELETED, null, null));
+        }
+    }
+
+    /**
+     * @return true when given version of the file is already indexed or scheduled
+     */
+    public boolean isCurrent(String path, long stamp) {
+        synchronized (pending) {
+            PendingFile file = pending.get(path);
+            if (file != null) {
+                return file.stamp == stamp;
+            }
+        }
+        Long indexed = state.stamps.get(path);
+        return indexed != null && indexed == stamp;
+    }
+
+    /**
+     * @return paths of all indexed files including the scheduled ones
+     */
+    public Set<String> indexedPaths() {
+        Set<String> paths = new HashSet<>(state.stamps.keySet());
+        synchronized (pending) {
+            for (Map.Entry<String, PendingFile> file : pending.entrySet()) {
+                if (file.getValue().stamp == DELETED) {
+                    paths.remove(file.getKey());
+                } else {
+                    paths.add(file.getKey());
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Writes scheduled changes into a new segment and merges the newest segments of similar size,
+     * all segments are merged when there are still too many of them
+     */
+    public synchronized void flush() throws IOException {
+        Map<String, PendingFile> files;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            files = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+        List<Snippet> snippets = new ArrayList<>();
+        Map<String, Long> paths = new LinkedHashMap<>();
+        for (Map.Entry<String, PendingFile> file : files.entrySet()) {
+            PendingFile content = file.getValue();
+            paths.put(file.getKey(), content.stamp);
+            if (content.text != null) {
+                split(file.getKey(), content.language, content.text, snippets);
+            }
+        }
+        IndexSegment segment = IndexSegment.write(newSegmentFile(), snippets, paths);
+        List<IndexSegment> segments = new ArrayList<>(state.segments);
+        segments.add(segment);
+        publish(segments);
+        int first = segments.size() - 1;
+        long size = segment.getFile().length();
+        while (first > 0 && segments.get(first - 1).getFile().length() <= size) {
+            first--;
+            size += segments.get(first).getFile().length();
+        }
+        if (first < segments.size() - 1) {
+            merge(first);
+        }
+        if (state.segments.size() > MAX_SEGMENTS) {
+            merge();
+        }
+    }
+
+    /**
+     * Rewrites all current snippets into a single segment, shadowed and deleted versions are dropped
+     */
+    public synchronized void merge() throws IOException {
+        if (state.segments.size() > 1) {
+            merge(0);
+        }
+    }
+
+    /**
+     * Rewrites current snippets of the segments from given position to the newest one into a single segment.
+     * Deletions are kept unless the oldest segment is merged as they still shadow versions in older segments.
+     */
+    private void merge(int first) throws IOException {
+        State current = state;
+        List<IndexSegment> merging = current.segments.subList(first, current.segments.size());
+        List<Snippet> snippets = new ArrayList<>();
+        Map<String, Long> paths = new LinkedHashMap<>();
+        for (IndexSegment segment : merging) {
+            for (int docId = 0; docId < segment.docCount(); docId++) {
+                if (current.isLive(segment, docId)) {
+                    snippets.add(segment.snippet(docId));
+                }
+            }
+            paths.putAll(segment.paths());
+        }
+        if (first == 0) {
+            paths.values().removeIf(stamp -> stamp == DELETED);
+        }
+        IndexSegment merged = IndexSegment.write(newSegmentFile(), snippets, paths);
+        List<IndexSegment> segments = new ArrayList<>(current.segments.subList(0, first));
+        segments.add(merged);
+        publish(segments);
+        for (IndexSegment segment : merging) {
+            // may fail while the old mapping is still open on Windows, leftovers are removed by the next open
+            segment.getFile().delete();
+        }
+    }
+
+    private void publish(List<IndexSegment> segments) throws IOException {
+        writeManifest(segments);
+        state = buildState(segments);
+    }
+
+    private File newSegmentFile() {
+        return new File(directory, SEGMENT_PREFIX + nextSegment++);
+    }
+
+    private void writeManifest(List<IndexSegment> segments) throws IOException {
+        File temp = new File(directory, MANIFEST + ".tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            for (IndexSegment segment : segments) {
+                out.write(segment.getFile().getName());
+                out.write('\n');
+            }
+        }
+        File manifest = new File(directory, MANIFEST);
+        if (!temp.renameTo(manifest) && (!manifest.delete() || !temp.renameTo(manifest))) {
+            throw new IOException("Cannot write snippet index manifest " + manifest);
+        }
+    }
+
+    /**
+     * Cuts file into windows of {@link #SNIPPET_LINES} lines starting every {@link #SNIPPET_STEP} lines,
+     * blank lines at window edges are left out
+     */
+    static void split(String path, String language, String text, List<Snippet> snippets) {
+        String[] lines = text.split("\r?\n", -1);
+        int count = lines.length;
+        while (count > 0 && lines[count - 1].trim().isEmpty()) {
+            count--;
+        }
+        for (int start = 0; start < count; start += SNIPPET_STEP) {
+            int first = start;
+            int last = Math.min(count, start + SNIPPET_LINES) - 1;
+            while (first <= last && lines[first].trim().isEmpty()) {
+                first++;
+            }
+            while (last >= first && lines[last].trim().isEmpty()) {
+                last--;
+            }
+            if (first <= last) {
+                snippets.add(new Snippet(path, language, first, last, String.join("\n", Arrays.asList(lines).subList(first, last + 1))));
+            }
+            if (start + SNIPPET_LINES >= count) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Ranks current snippets by BM25 over query terms, snippets of the query language are preferred
+     */
+    public List<SnippetMatch> search(String query, String language, int limit) {
+        State current = state;
+        Set<String> terms = new LinkedHashSet<>(SnippetTokenizer.tokenize(query, language));
+        if (language != null) {
+            terms.remove(language.toLowerCase(Locale.ROOT));
+        }
+        long documents = current.documents;
+        if (terms.isEmpty() || documents == 0) {
+            return Collections.emptyList();
+        }
+        float averageLength = Math.max(1f, (float) current.tokens / documents);
+        Map<Long, float[]> scores = new HashMap<>();
+        for (String term : terms) {
+            // segment, document and term frequency of current snippets only, shadowed versions would skew the idf
+            List<int[]> postings = new ArrayList<>();
+            for (int s = 0; s < current.segments.size(); s++) {
+                IndexSegment segment = current.segments.get(s);
+                int segmentIndex = s;
+                segment.forEachPosting(term, (docId, termFrequency) -> {
+                    if (current.isLive(segment, docId)) {
+                        postings.add(new int[]{segmentIndex, docId, termFrequency});
+                    }
+                });
+            }
+            if (postings.isEmpty()) {
+                continue;
+            }
+            int frequency = postings.size();
+            float idf = (float) Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+            for (int[] posting : postings) {
+                IndexSegment segment = current.segments.get(posting[0]);
+                float norm = K1 * (1 - B + B * segment.length(posting[1]) / averageLength);
+                float score = idf * posting[2] * (K1 + 1) / (posting[2] + norm);
+                scores.computeIfAbsent((long) posting[0] << 32 | posting[1], key -> new float[1])[0] += score;
+            }
+        }
+        PriorityQueue<Map.Entry<Long, float[]>> top = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry.getValue()[0]));
+        int candidates = limit * 4;
+        for (Map.Entry<Long, float[]> score : scores.entrySet()) {
+            top.add(score);
+            if (top.size() > candidates) {
+                top.poll();
+            }
+        }
+        List<SnippetMatch> matches = new ArrayList<>(top.size());
+        for (Map.Entry<Long, float[]> entry : top) {
+            Snippet snippet = current.segments.get((int) (entry.getKey() >>> 32)).snippet((int) (long) entry.getKey());
+            float score = entry.getValue()[0];
+            if (language != null && language.equalsIgnoreCase(snippet.getLanguage())) {
+                score *= SAME_LANGUAGE_BOOST;
+            }
+            matches.add(new SnippetMatch(snippet, score));
+        }
+        matches.sort(Comparator.comparingDouble(SnippetMatch::getScore).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    public int getSegmentCount() {
+        return state.segments.size();
+    }
+
+    /**
+     * @return number of current snippets
+     */
+    public int getSnippetCount() {
+        return (int) state.documents;
+    }
+
+    /**
+     * Scheduled changes not flushed yet are lost, mapped segments are released by garbage collection
+     */
+    @Override
+    public synchronized void close() {
+        synchronized (pending) {
+            pending.clear();
+        }
+        state = buildState(new ArrayList<>());
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.youopensource.yougitlab.index
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.PathManager
+import com.intellij.openapi.application.ReadAction
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.roots.ProjectFileIndex
+import com.intellij.openapi.roots.ProjectRootManager
+import com.intellij.openapi.vfs.VfsUtilCore
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.openapi.vfs.newvfs.BulkFileListener
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent
+import com.intellij.util.concurrency.AppExecutorUtil
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps [SnippetIndex] of the source files in the content roots of the project up to date.
+ * The first run indexes every supported file, later runs and file changes reindex only files with a new modification stamp.
+ */
+class SnippetIndexService(private val project: Project) : Disposable {
+    private val LOG: Logger = Logger.getInstance(this.javaClass)
+    private val executor = AppExecutorUtil.createBoundedScheduledExecutorService("You.com snippet index", 1)
+    private var flushTask: ScheduledFuture<*>? = null
+
+    @Volatile
+    private var index: SnippetIndex? = null
+
+    init {
+        executor.execute(::initialScan)
+        project.messageBus.connect(this).subscribe(VirtualFileManager.VFS_CHANGES, object : BulkFileListener {
+            override fun after(events: List<VFileEvent>) {
+                val changed = events.filter { it.path.let { path -> SnippetTokenizer.languageOf(path) != null } }
+                if (changed.isNotEmpty()) {
+                    executor.execute { onFilesChanged(changed) }
+                }
+            }
+        })
+    }
+
+    /**
+     * @return best matching snippets of the project, empty while the index is not open yet
+     */
+    fun search(query: String, language: String?, limit: Int): List<SnippetMatch> {
+        return index?.search(query, language, limit) ?: emptyList()
+    }
+
+    private fun initialScan() {
+        val opened = try {
+            SnippetIndex.open(File(PathManager.getSystemPath(), "you-index/${project.locationHash}"))
+        } catch (e: IOException) {
+            LOG.warn("Cannot open snippet index", e)
+            return
+        }
+        // the index of the previous session answers searches while the files are rescanned
+        index = opened
+        val stale = opened.indexedPaths()
+        val roots = ReadAction.compute<Array<VirtualFile>, RuntimeException> {
+            if (project.isDisposed) emptyArray() else ProjectRootManager.getInstance(project).contentRoots
+        }
+        var scanned = 0
+        for (root in roots) {
+            // a write action cancels the walk of the root and restarts it afterwards instead of waiting for it
+            val files = try {
+                ReadAction.nonBlocking<List<VirtualFile>> { collectSourceFiles(root) }
+                    .expireWith(this)
+                    .executeSynchronously()
+            } catch (e: ProcessCanceledException) {
+                return
+            }
+            for (file in files) {
+                stale.remove(file.path)
+                if (project.isDisposed) {
+                    return
+                }
+                index(opened, file)
+                // file texts wait in memory until the next flush, large projects are written in several segments
+                if (++scanned % SCAN_FLUSH_FILES == 0) {
+                    flush()
+                }
+            }
+        }
+        stale.forEach { opened.remove(it) }
+        flush()
+    }
+
+    private fun collectSourceFiles(root: VirtualFile): List<VirtualFile> {
+        if (project.isDisposed || !root.isValid) {
+            return emptyList()
+        }
+        val fileIndex = ProjectFileIndex.getInstance(project)
+        val files = ArrayList<VirtualFile>()
+        VfsUtilCore.iterateChildrenRecursively(root, { !fileIndex.isExcluded(it) }) {
+            ProgressManager.checkCanceled()
+            if (!it.isDirectory && isIndexable(it)) {
+                files.add(it)
+            }
+            true
+        }
+        return files
+    }
+
+    private fun onFilesChanged(events: List<VFileEvent>) {
+        val current = index ?: return
+        for (event in events) {
+            val file = event.file
+            if (event is VFileDeleteEvent || file == null || !file.isValid) {
+                current.remove(event.path)
+            } else if (isIndexable(file) && ReadAction.compute<Boolean, RuntimeException> { !project.isDisposed && ProjectFileIndex.getInstance(project).isInContent(file) }) {
+                index(current, file)
+            }
+        }
+        // changes coming in bursts, e.g. a branch checkout, end up in one segment
+        flushTask?.cancel(false)
+        flushTask = executor.schedule(::flush, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS)
+    }
+
+    private fun index(target: SnippetIndex, file: VirtualFile) {
+        if (target.isCurrent(file.path, file.timeStamp)) {
+            return
+        }
+        try {
+            val text = String(file.contentsToByteArray(), file.charset)
+            target.update(file.path, file.timeStamp, SnippetTokenizer.languageOf(file.name), text)
+        } catch (e: IOException) {
+            LOG.debug("Cannot index ${file.path}", e)
+        }
+    }
+
+    private fun isIndexable(file: VirtualFile): Boolean =
+        file.length <= MAX_FILE_BYTES && !file.fileType.isBinary && SnippetTokenizer.languageOf(file.name) != null
+
+    private fun flush() {
+        try {
+            index?.flush()
+        } catch (e: IOException) {
+            LOG.warn("Cannot write snippet index", e)
+        }
+    }
+
+    override fun dispose() {
+        executor.execute {
+            flush()
+            index?.close()
+        }
+        executor.shutdown()
+    }
+
+    companion object {
+        private const val MAX_FILE_BYTES = 256L * 1024
+        private const val FLUSH_DELAY_SECONDS = 2L
+        private const val SCAN_FLUSH_FILES = 1000
+
+        fun getInstance(project: Project): SnippetIndexService = project.getService(SnippetIndexService::class.java)
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.youopensource.yougitlab.index;
+
+/**
+ * Snippet found by {@link SnippetIndex#search(String, String, int)} with its relevance score
+ */
+public final class SnippetMatch {
+
+    private final Snippet snippet;
+    private final float score;
+
+    public SnippetMatch(Snippet snippet, float score) {
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    public Snippet getSnippet() {
+        return snippet;
+    }
+
+    public float getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.youopensource.yougitlab.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits source code into index terms.
+ * Identifiers are lowercased and also split on camel case and underscores, keywords of the language are dropped.
+ */
+public final class SnippetTokenizer {
+
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private static final Set<String> COMMON_KEYWORDS = set(
+            "if", "else", "for", "while", "do", "return", "break", "continue", "true", "false", "null", "new", "in",
+            "of", "is", "as", "and", "or", "not", "try", "catch", "finally", "throw", "class", "import", "this", "var");
+    private static final Map<String, Set<String>> KEYWORDS = new HashMap<>();
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+    static {
+        KEYWORDS.put("java", set("public", "private", "protected", "static", "final", "void", "int", "long", "boolean",
+                "package", "extends", "implements", "interface", "throws", "super", "abstract", "synchronized", "string"));
+        KEYWORDS.put("kotlin", set("fun", "val", "override", "private", "internal", "object", "companion", "when",
+                "package", "data", "open", "lateinit", "it", "string", "int"));
+        KEYWORDS.put("python", set("def", "self", "none", "elif", "from", "with", "lambda", "pass", "yield", "print",
+                "except", "raise", "global", "cls"));
+        KEYWORDS.put("javascript", set("function", "const", "let", "undefined", "async", "await", "export", "default",
+                "typeof", "require", "module"));
+        KEYWORDS.put("typescript", KEYWORDS.get("javascript"));
+        KEYWORDS.put("go", set("func", "package", "type", "struct", "range", "defer", "nil", "err", "chan", "go"));
+
+        EXTENSIONS.put("java", "java");
+        EXTENSIONS.put("kt", "kotlin");
+        EXTENSIONS.put("kts", "kotlin");
+        EXTENSIONS.put("py", "python");
+        EXTENSIONS.put("js", "javascript");
+        EXTENSIONS.put("jsx", "javascript");
+        EXTENSIONS.put("ts", "typescript");
+        EXTENSIONS.put("tsx", "typescript");
+        EXTENSIONS.put("go", "go");
+        EXTENSIONS.put("rb", "ruby");
+        EXTENSIONS.put("rs", "rust");
+        EXTENSIONS.put("c", "c");
+        EXTENSIONS.put("h", "c");
+        EXTENSIONS.put("cpp", "cpp");
+        EXTENSIONS.put("cs", "csharp");
+        EXTENSIONS.put("php", "php");
+        EXTENSIONS.put("scala", "scala");
+        EXTENSIONS.put("groovy", "groovy");
+    }
+
+    private SnippetTokenizer() {
+    }
+
+    private static Set<String> set(String... values) {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(values)));
+    }
+
+    /**
+     * @return language id of indexed source file, {@code null} when files of this type are not indexed
+     */
+    public static String languageOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? EXTENSIONS.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+    }
+
+    public static List<String> tokenize(CharSequence text, String language) {
+        List<String> terms = new ArrayList<>();
+        Set<String> keywords = language != null ? KEYWORDS.getOrDefault(language.toLowerCase(Locale.ROOT), Collections.emptySet()) : Collections.emptySet();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!Character.isJavaIdentifierStart(c) || c == '$') {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && Character.isJavaIdentifierPart(text.charAt(i))) {
+                i++;
+            }
+            addIdentifier(text, start, i, keywords, terms);
+        }
+        return terms;
+    }
+
+    private static void addIdentifier(CharSequence text, int start, int end, Set<String> keywords, List<String> terms) {
+        if (end - start > MAX_TERM_LENGTH) {
+            return;
+        }
+        String identifier = text.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+        int parts = 0;
+        int partStart = start;
+        for (int i = start + 1; i <= end; i++) {
+            if (i == end || isBoundary(text, i)) {
+                if (addTerm(text.subSequence(partStart, i).toString().toLowerCase(Locale.ROOT), keywords, terms)) {
+                    parts++;
+                }
+                while (i < end && text.charAt(i) == '_') {
+                    i++;
+                }
+                partStart = i;
+            }
+        }
+        if (parts != 1) {
+            addTerm(identifier, keywords, terms);
+        }
+    }
+
+    /**
+     * Boundary before position {@code i}: underscore, lower to upper case change or end of an acronym like {@code HTTPServer}
+     */
+    private static boolean isBoundary(CharSequence text, int i) {
+        char previous = text.charAt(i - 1);
+        char current = text.charAt(i);
+        if (current == '_') {
+            return true;
+        }
+        if (Character.isUpperCase(current)) {
+            return Character.isLowerCase(previous) || Character.isDigit(previous)
+                    || (Character.isUpperCase(previous) && i + 1 < text.length() && Character.isLowerCase(text.charAt(i + 1)));
+        }
+        return false;
+    }
+
+    private static boolean addTerm(String term, Set<String> keywords, List<String> terms) {
+        String trimmed = trimUnderscores(term);
+        if (trimmed.length() < MIN_TERM_LENGTH || COMMON_KEYWORDS.contains(trimmed) || keywords.contains(trimmed)) {
+            return false;
+        }
+        terms.add(trimmed);
+        return true;
+    }
+
+    private static String trimUnderscores(String term) {
+        int start = 0;
+        int end = term.length();
+        while (start < end && term.charAt(start) == '_') {
+            start++;
+        }
+        while (end > start && term.charAt(end - 1) == '_') {
+            end--;
+        }
+        return term.substring(start, end);
+    }
+}
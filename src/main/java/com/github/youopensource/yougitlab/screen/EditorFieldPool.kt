@@ -0,0 +1,34 @@
+package com.github.youopensource.yougitlab.screen
+
+import com.intellij.lang.Language
+import com.intellij.openapi.editor.Document
+import com.intellij.ui.EditorTextField
+import java.util.ArrayDeque
+
+/**
+ * Small pool of viewer editor fields per language, fields are recycled between rows instead of created per snippet.
+ * Used only on EDT.
+ */
+class EditorFieldPool(
+    private val factory: (Language) -> EditorTextField,
+    private val maxIdlePerLanguage: Int = 6
+) {
+    private val idle = HashMap<Language, ArrayDeque<EditorTextField>>()
+
+    fun acquire(language: Language, document: Document): EditorTextField {
+        val field = idle[language]?.pollFirst() ?: factory(language)
+        field.document = document
+        return field
+    }
+
+    fun release(language: Language, field: EditorTextField) {
+        val fields = idle.getOrPut(language) { ArrayDeque() }
+        if (fields.size < maxIdlePerLanguage) {
+            fields.addLast(field)
+        }
+    }
+
+    fun clear() {
+        idle.clear()
+    }
+}
@@ -2,18 +2,26 @@ package com.github.youopensource.yougitlab.screen
 
 import com.github.youopensource.yougitlab.data.Solution
 import com.github.youopensource.yougitlab.data.SolutionResult
+import com.github.youopensource.yougitlab.data.repository.YouHttpClient
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency.Stage
 import com.github.youopensource.yougitlab.services.ApiService
 import com.github.youopensource.yougitlab.services.YouPreferences
 import com.intellij.icons.AllIcons
 import com.intellij.lang.Language
+import com.intellij.openapi.Disposable
 import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.ReadAction
 import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.editor.Document
 import com.intellij.openapi.editor.EditorSettings
 import com.intellij.openapi.editor.actions.IncrementalFindAction
 import com.intellij.openapi.editor.colors.EditorColors
 import com.intellij.openapi.editor.colors.EditorColorsManager
 import com.intellij.openapi.fileEditor.FileEditorManager
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Disposer
 import com.intellij.openapi.wm.ToolWindow
 import com.intellij.openapi.wm.ToolWindowFactory
 import com.intellij.psi.PsiDocumentManager
@@ -29,19 +37,26 @@ import com.intellij.ui.components.JBScrollPane
 import com.intellij.ui.components.panels.HorizontalLayout
 import com.intellij.ui.content.ContentFactory
 import com.intellij.util.ui.Centerizer
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.intellij.util.ui.JBUI
-import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.disposables.CompositeDisposable
+import java.awt.BorderLayout
 import java.awt.Desktop
 import java.awt.Toolkit
 import java.awt.datatransfer.StringSelection
 import java.net.URI
 import javax.swing.JButton
+import javax.swing.JPanel
 
 class SideSuggestionViewFactory : ToolWindowFactory {
     private val LOG: Logger = Logger.getInstance(this.javaClass)
     private var dataProviderPanel: DataProviderPanel? = null
     private var project: Project? = null
-    private var disposables: ArrayList<Disposable> = ArrayList();
+    private var budgetLabel: JBLabel? = null
+    private var suggestionList: SuggestionListView? = null
+    @Volatile
+    private var resultGeneration = 0
+    private val documentExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("You.com suggestion documents", 1)
 
     /**
      * Create the tool window content.
@@ -52,7 +67,6 @@ class SideSuggestionViewFactory : ToolWindowFactory {
     override fun createToolWindowContent(project: Project, toolWindow: ToolWindow) {
         LOG.debug("Creating toolwindow with id ${toolWindow.id}")
         this.project = project
-        disposables.forEach { it.dispose() }
         val contentFactory = ContentFactory.SERVICE.getInstance()
 
         dataProviderPanel = DataProviderPanel().apply {
@@ -67,10 +81,23 @@ class SideSuggestionViewFactory : ToolWindowFactory {
         )
 
         val jbScrollPane = JBScrollPane(dataProviderPanel, 20, 31)
+        suggestionList = SuggestionListView(
+            dataProviderPanel!!,
+            jbScrollPane.viewport,
+            EditorFieldPool { language -> editorTextField(project, language) },
+            ApiService::loadNextPage
+        )
         val content = contentFactory.createContent(jbScrollPane, "", false)
         toolWindow.contentManager.addContent(content)
 
-        disposables.add(ApiService.getSolutionObservable().subscribe({
+        // subscriptions and searches of this window end with its content, windows of other projects keep theirs
+        val subscriptions = CompositeDisposable()
+        Disposer.register(content, Disposable {
+            subscriptions.dispose()
+            resultGeneration++
+            YouHttpClient.cancel(YouHttpClient.CallOwner.of(project))
+        })
+        subscriptions.add(ApiService.getSolutionObservable().subscribe({
             if (project.isDisposed) {
                 return@subscribe
             }
@@ -82,35 +109,58 @@ class SideSuggestionViewFactory : ToolWindowFactory {
                 onError(it)
             }
         }))
-        disposables.add(ApiService.getLoadingObservable().subscribe {
+        subscriptions.add(ApiService.getLoadingObservable().subscribe {
             ApplicationManager.getApplication().invokeLater {
                 onLoading()
             }
         })
+        subscriptions.add(ApiService.getBudgetObservable().subscribe {
+            ApplicationManager.getApplication().invokeLater {
+                budgetLabel?.text = budgetText(it)
+            }
+        })
     }
 
 
     private fun onSuggestion(result: SolutionResult) {
         val solutionList = result.solutions!!
-        cleanLayout()
-        dataProviderPanel?.add(createSettingsView(result.language!!))
-        if (solutionList.isEmpty()) {
-            val reason = "No solutions were found, try another selection"
-            dataProviderPanel?.add(JBLabel(reason))
-            LOG.debug(reason)
-            return
+        if (!result.append) {
+            cleanLayout()
+            dataProviderPanel?.add(createSettingsView(result.language!!))
+            if (solutionList.isEmpty()) {
+                val reason = "No solutions were found, try another selection"
+                dataProviderPanel?.add(JBLabel(reason))
+                LOG.debug(reason)
+                return
+            }
         }
-        solutionList.map { solution ->
-            val elements = createCodeSuggestionView(project!!, solution)
-            dataProviderPanel?.add(
-                elements.panel
-            )
-            dataProviderPanel?.add(elements.field)
+        val project = project!!
+        val language = currentLanguage(project)
+        val generation = resultGeneration
+        // snippet documents and their PSI are created off EDT, EDT only builds the visible rows,
+        // the executor is sequential so streamed solutions are appended in order
+        ReadAction.nonBlocking<List<Document>> {
+            solutionList.map { solution ->
+                SuggestionLatency.time(Stage.DOCUMENT) { createDocument(project, language, solution.codeSnippet!!) }
+            }
         }
+            .expireWhen { project.isDisposed || generation != resultGeneration }
+            .finishOnUiThread(ModalityState.defaultModalityState()) { documents ->
+                solutionList.forEachIndexed { index, solution ->
+                    suggestionList?.add(createCodeSuggestionView(project, solution, language, documents[index]))
+                }
+                suggestionList?.refresh()
+                if (!result.append && result.requestNanos != 0L) {
+                    SuggestionLatency.recordSince(Stage.SHOWN, result.requestNanos)
+                }
+            }
+            .submit(documentExecutor)
     }
 
     private fun cleanLayout() {
         LOG.debug("Cleaning layout")
+        resultGeneration++
+        suggestionList?.clear()
         dataProviderPanel!!.removeAll()
     }
 
@@ -122,7 +172,6 @@ class SideSuggestionViewFactory : ToolWindowFactory {
         )
     }
     private fun onLoading() {
-        println("loading")
         cleanLayout()
         dataProviderPanel?.add(
             Centerizer(JBLabel("Loading..."))
@@ -138,10 +187,14 @@ class SideSuggestionViewFactory : ToolWindowFactory {
                 YouPreferences.getInstance().state.onlySelectionSearch = this.isSelected
             }
         })
+        budgetLabel = JBLabel(budgetText(ApiService.throttle.usedInLastMinute()))
+        panel.add(budgetLabel)
         return panel
     }
 
-    private fun createCodeSuggestionView(project: Project, solution: Solution): SuggestionPanel {
+    private fun budgetText(used: Int) = "$used/${ApiService.throttle.budgetPerMinute} requests this minute"
+
+    private fun createCodeSuggestionView(project: Project, solution: Solution, language: Language, document: Document): SuggestionPanel {
         val smallButton = SmallButton("Copy Solution ${solution.number}").apply {
             addActionListener {
                 this.text = "Solution copied!"
@@ -152,6 +205,9 @@ class SideSuggestionViewFactory : ToolWindowFactory {
         val horizontalPanel = JBPanelWithEmptyText(HorizontalLayout(5)).apply {
             add(smallButton)
         }
+        if (solution.solutionText != null) {
+            horizontalPanel.add(JBLabel(solution.solutionText))
+        }
         if (solution.solutionLink != null) {
             val jbLabel = JButton("Open in browser", AllIcons.Nodes.PpWeb)
             jbLabel.addActionListener {
@@ -159,8 +215,7 @@ class SideSuggestionViewFactory : ToolWindowFactory {
             }
             horizontalPanel.add(jbLabel)
         }
-        val editorTextField = editorTextField(project, solution.codeSnippet!!)
-        return SuggestionPanel(smallButton, horizontalPanel, editorTextField)
+        return SuggestionPanel(smallButton, horizontalPanel, JPanel(BorderLayout()), language, document)
     }
 
     private fun onButtonClicked(
@@ -172,10 +227,21 @@ class SideSuggestionViewFactory : ToolWindowFactory {
             .setContents(StringSelection(solution.codeSnippet!!), null)
     }
 
-    private fun editorTextField(project: Project, text: String): EditorTextField {
-        val document = FileEditorManager.getInstance(project).selectedTextEditor!!.document
-        val language = PsiDocumentManager.getInstance(project).getPsiFile(document)?.language
+    private fun currentLanguage(project: Project): Language {
+        val document = FileEditorManager.getInstance(project).selectedTextEditor?.document
+        return document?.let { PsiDocumentManager.getInstance(project).getPsiFile(it)?.language }
             ?: Language.findLanguageByID("Python")!!
+    }
+
+    private fun createDocument(project: Project, language: Language, text: String): Document {
+        return PsiManager.getInstance(project).findViewProvider(
+            LightVirtualFile(
+                "ignored", language, text
+            )
+        )!!.document!!
+    }
+
+    private fun editorTextField(project: Project, language: Language): EditorTextField {
         val editorField = EditorTextFieldProvider.getInstance().getEditorField(
             language, project, listOf(
                 EditorCustomization {
@@ -199,15 +265,6 @@ class SideSuggestionViewFactory : ToolWindowFactory {
                     it.colorsScheme = scheme
                 }
             ))
-        editorField.document = PsiManager.getInstance(project).findViewProvider(
-            LightVirtualFile(
-                "ignored", language, text
-            )
-        )!!.document
         return editorField
     }
-
-    fun dispose() {
-
-    }
 }
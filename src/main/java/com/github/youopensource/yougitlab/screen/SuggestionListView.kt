@@ -0,0 +1,104 @@
+package com.github.youopensource.yougitlab.screen
+
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency
+import com.intellij.util.ui.JBUI
+import java.awt.Dimension
+import java.awt.Rectangle
+import javax.swing.JComponent
+import javax.swing.JViewport
+import javax.swing.SwingUtilities
+
+/**
+ * Virtualized list of suggestion rows inside a scrolled container.
+ * Only rows in or near the visible part of the viewport hold an editor, other rows keep a placeholder of the same height
+ * and return their editor to the pool. Used only on EDT.
+ */
+class SuggestionListView(
+    private val container: JComponent,
+    private val viewport: JViewport,
+    private val pool: EditorFieldPool,
+    private val onReachedEnd: () -> Unit
+) {
+    private val rows = ArrayList<SuggestionPanel>()
+
+    init {
+        viewport.addChangeListener { updateVisibleRows() }
+    }
+
+    fun add(row: SuggestionPanel) {
+        row.slot.preferredSize = Dimension(0, estimateHeight(row))
+        rows.add(row)
+        container.add(row.panel)
+        container.add(row.slot)
+    }
+
+    /**
+     * Lays out added rows and attaches editors to the visible ones
+     */
+    fun refresh() {
+        container.revalidate()
+        SwingUtilities.invokeLater { updateVisibleRows() }
+    }
+
+    fun clear() {
+        rows.forEach { detach(it) }
+        rows.clear()
+    }
+
+    private fun updateVisibleRows() {
+        if (rows.isEmpty()) {
+            return
+        }
+        val visible = Rectangle(viewport.viewRect)
+        if (visible.maxY + visible.height >= viewport.view.height) {
+            // less than a screen left, more rows are requested before the user gets there
+            onReachedEnd()
+        }
+        // editors half a screen above and below are ready before they scroll in
+        visible.grow(0, visible.height / 2)
+        for (row in rows) {
+            if (row.slot.parent == null) {
+                continue
+            }
+            val bounds = SwingUtilities.convertRectangle(row.slot.parent, row.slot.bounds, viewport.view)
+            if (bounds.intersects(visible)) {
+                attach(row)
+            } else {
+                detach(row)
+            }
+        }
+    }
+
+    private fun attach(row: SuggestionPanel) {
+        if (row.field != null) {
+            return
+        }
+        SuggestionLatency.time(SuggestionLatency.Stage.EDITOR) {
+            val field = pool.acquire(row.language, row.document)
+            row.field = field
+            row.slot.preferredSize = null
+            row.slot.add(field)
+            row.slot.revalidate()
+        }
+    }
+
+    private fun detach(row: SuggestionPanel) {
+        val field = row.field ?: return
+        // keep the measured height so the scrollbar does not jump
+        row.slot.preferredSize = Dimension(row.slot.width, row.slot.height)
+        row.slot.remove(field)
+        row.field = null
+        pool.release(row.language, field)
+        row.slot.revalidate()
+    }
+
+    private fun estimateHeight(row: SuggestionPanel): Int {
+        val lines = row.document.lineCount.coerceIn(1, MAX_ESTIMATED_LINES)
+        return JBUI.scale(LINE_HEIGHT * lines + 8)
+    }
+
+    companion object {
+        private const val LINE_HEIGHT = 17
+        private const val MAX_ESTIMATED_LINES = 40
+    }
+}
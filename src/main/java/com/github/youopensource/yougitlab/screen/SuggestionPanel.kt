@@ -1,12 +1,20 @@
 package com.github.youopensource.yougitlab.screen
 
+import com.intellij.lang.Language
+import com.intellij.openapi.editor.Document
 import com.intellij.ui.EditorTextField
 import com.intellij.ui.components.JBPanelWithEmptyText
+import javax.swing.JPanel
 
 
+/**
+ * One row of the suggestion list, [field] is attached to [slot] only while the row is visible
+ */
 data class SuggestionPanel(
     val button: SmallButton,
     val panel: JBPanelWithEmptyText,
-    val field: EditorTextField
+    val slot: JPanel,
+    val language: Language,
+    val document: Document,
+    var field: EditorTextField? = null
 )
-
@@ -0,0 +1,26 @@
+package com.github.youopensource.yougitlab.services
+
+import com.github.youopensource.yougitlab.data.AnalyticsEvent
+import com.github.youopensource.yougitlab.data.repository.AnalyticsQueue
+import com.github.youopensource.yougitlab.data.repository.RemoteYouRepository
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ApplicationManager
+
+/**
+ * Application wide analytics queue, remaining events are flushed when the application or plugin is disposed
+ */
+class AnalyticsService : Disposable {
+    private val queue = AnalyticsQueue(RemoteYouRepository::recordAnalyticsEvent)
+
+    fun record(event: AnalyticsEvent) {
+        queue.offer(event)
+    }
+
+    override fun dispose() {
+        queue.close()
+    }
+
+    companion object {
+        fun getInstance(): AnalyticsService = ApplicationManager.getApplication().getService(AnalyticsService::class.java)
+    }
+}
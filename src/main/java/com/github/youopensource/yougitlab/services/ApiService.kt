@@ -1,53 +1,188 @@
 package com.github.youopensource.yougitlab.services
 
+import com.github.youopensource.yougitlab.data.Result
 import com.github.youopensource.yougitlab.data.Solution
 import com.github.youopensource.yougitlab.data.SolutionRequest
 import com.github.youopensource.yougitlab.data.SolutionResult
 import com.github.youopensource.yougitlab.data.repository.RemoteYouRepository
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency.Stage
+import com.github.youopensource.yougitlab.index.SnippetIndexService
 import com.intellij.openapi.diagnostic.Logger
+import io.reactivex.rxjava3.core.BackpressureStrategy
+import io.reactivex.rxjava3.core.Flowable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.processors.BehaviorProcessor
+import io.reactivex.rxjava3.processors.PublishProcessor
+import io.reactivex.rxjava3.schedulers.Schedulers
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 object ApiService {
     private val LOG: Logger = Logger.getInstance(this.javaClass)
     private val publisher: BehaviorProcessor<SolutionResult> = BehaviorProcessor.create()
     private val loadingPublisher: BehaviorProcessor<Boolean> = BehaviorProcessor.create()
     private val requestPublisher: BehaviorProcessor<SolutionRequest> = BehaviorProcessor.create()
+    private val budgetPublisher: BehaviorProcessor<Int> = BehaviorProcessor.createDefault(0)
+    private val pagePublisher: PublishProcessor<Search> = PublishProcessor.create()
+    val throttle = SuggestionThrottle()
+
+    private data class Search(val request: SolutionRequest, val page: Int)
+    private const val LOCAL_RESULTS = 3
+
+    // state of the latest search, the next page is requested only when the previous one returned something
+    @Volatile
+    private var current: Search? = null
+    @Volatile
+    private var pageLoading = false
+    @Volatile
+    private var hasMorePages = false
+    private val solutionCount = AtomicInteger()
 
     init {
-        requestPublisher.debounce(1, TimeUnit.SECONDS).subscribe({ request ->
-            if (request.codeLine.isNullOrBlank()) {
-                LOG.debug("Skipped request since request has no code present")
-                return@subscribe
+        // switchMap disposes the running search when a newer request arrives, which cancels its HTTP call,
+        // so only the result of the latest caret position is ever published, next pages bypass the debounce
+        requestPublisher
+            .debounce { request -> Flowable.timer(throttle.delayMillis(request), TimeUnit.MILLISECONDS) }
+            .filter { request ->
+                if (request.codeLine.isNullOrBlank()) {
+                    LOG.debug("Skipped request since request has no code present")
+                    return@filter false
+                }
+                true
             }
-            try {
-                val firstResult = RemoteYouRepository.getCodeSuggestions(request).blockingFirst()
-                loadingPublisher.onNext(true)
-                val results = firstResult.searchResults!!.results!!
-                    .filter {
-                        it.codeSnippet != null
-                    }.mapIndexed { id, result ->
-                        Solution(id, result.codeSnippet, null, result.url)
-                    }
-                if (results.isEmpty()) {
+            .map { Search(it, 1) }
+            .mergeWith(pagePublisher)
+            .switchMap { search(it) }
+            .subscribe({
+                publisher.onNext(it)
+            }, {
+                publisher.onError(it)
+            })
+    }
+
+    /**
+     * Publishes every solution as soon as it is decoded, the first solution of a new search replaces the shown ones
+     */
+    private fun search(search: Search): Flowable<SolutionResult> {
+        return Flowable.defer {
+            val request = search.request
+            val firstPage = search.page == 1
+            if (firstPage) {
+                solutionCount.set(0)
+                SuggestionLatency.recordSince(Stage.DEBOUNCE, request.createdNanos)
+            }
+            current = search
+            val local = if (firstPage) localSuggestions(request) else Observable.empty()
+            solutions(request, search.page, local) { acquire ->
+                RemoteYouRepository.getCodeSuggestions(request, search.page, acquire)
+            }
+                .toFlowable(BackpressureStrategy.BUFFER)
+        }
+    }
+
+    /**
+     * Local solutions followed by the remote ones of one page, numbered in the order they are shown
+     *
+     * @param remote results of the page, the request goes out only when the acquire function returns true
+     */
+    fun solutions(
+        request: SolutionRequest,
+        page: Int,
+        local: Observable<Solution>,
+        remote: (acquire: () -> Boolean) -> Observable<Result>
+    ): Observable<SolutionResult> {
+        val firstPage = page == 1
+        pageLoading = true
+        hasMorePages = false
+        var found = 0
+        var remoteFound = 0
+        var skipped = false
+        val remoteSolutions = remote {
+            // once local solutions are shown the loading state would replace them, remote ones are appended instead
+            skipped = !acquireBudget(firstPage && found == 0)
+            !skipped
+        }
+            .filter { it.codeSnippet != null }
+            .map {
+                remoteFound++
+                Solution(0, it.codeSnippet, null, it.url)
+            }
+        // in-house snippets come from the local index within milliseconds and are shown before the remote ones
+        return Observable.concat(local, remoteSolutions)
+            .subscribeOn(Schedulers.io())
+            .map { solution ->
+                val append = !firstPage || found > 0
+                if (!append) {
+                    SuggestionLatency.recordSince(Stage.FIRST_RESULT, request.createdNanos)
+                }
+                found++
+                SolutionResult(
+                    solutions = listOf(solution.copy(number = solutionCount.getAndIncrement())),
+                    language = request.language,
+                    append = append,
+                    requestNanos = request.createdNanos
+                )
+            }
+            .concatWith(Observable.defer {
+                pageLoading = false
+                hasMorePages = remoteFound > 0
+                if (firstPage && found == 0 && !skipped) {
                     TelemetryService.instance.action("intellij_user_search_zero_results")
                         .property("search.param", request.codeLine)
+                    Observable.just(SolutionResult(solutions = emptyList(), language = request.language))
+                } else {
+                    Observable.empty()
                 }
-                publisher.onNext(
-                    SolutionResult(
-                        solutions = results,
-                        language = request.language
-                    )
-                )
-            } catch (ignored: NoSuchElementException) {
-
-            } catch (e: Exception) {
+            })
+            .onErrorResumeNext { e: Throwable ->
+                pageLoading = false
                 LOG.error(e)
+                Observable.empty()
+            }
+    }
+
+    private fun localSuggestions(request: SolutionRequest): Observable<Solution> {
+        val project = request.project ?: return Observable.empty()
+        return Observable.fromCallable {
+            SuggestionLatency.time(Stage.LOCAL_SEARCH) {
+                SnippetIndexService.getInstance(project).search(request.codeLine!!, request.language, LOCAL_RESULTS)
+            }
+        }
+            .flatMapIterable { it }
+            .map { match ->
+                val snippet = match.snippet
+                Solution(0, snippet.text, "${snippet.path}:${snippet.startLine + 1}", null)
+            }
+            .onErrorResumeNext { e: Throwable ->
+                LOG.warn("Local snippet search failed", e)
+                Observable.empty()
             }
-        }, {
-            publisher.onError(it)
-        })
+    }
+
+    /**
+     * Prefetches next page of the latest search, does nothing while a page is loading or when the last page was empty
+     */
+    fun loadNextPage() {
+        val search = current ?: return
+        if (pageLoading || !hasMorePages) {
+            return
+        }
+        pageLoading = true
+        pagePublisher.onNext(Search(search.request, search.page + 1))
+    }
+
+    private fun acquireBudget(showLoading: Boolean): Boolean {
+        val acquired = throttle.tryAcquire()
+        if (acquired) {
+            if (showLoading) {
+                loadingPublisher.onNext(true)
+            }
+        } else {
+            LOG.debug("Skipped request since request budget of ${throttle.budgetPerMinute} per minute is used up")
+        }
+        budgetPublisher.onNext(throttle.usedInLastMinute())
+        return acquired
     }
 
     fun recordButtonClickedEvent(solution: Solution) {
@@ -58,5 +193,10 @@ object ApiService {
     fun getSolutionObservable(): Observable<SolutionResult> = publisher.toObservable()
     fun getLoadingObservable(): Observable<Boolean> = loadingPublisher.toObservable()
 
+    /**
+     * Emits number of requests sent within the last minute whenever a request is about to be sent
+     */
+    fun getBudgetObservable(): Observable<Int> = budgetPublisher.toObservable()
+
 
 }
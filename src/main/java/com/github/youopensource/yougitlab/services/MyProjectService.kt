@@ -1,90 +1,148 @@
 package com.github.youopensource.yougitlab.services
 
 import com.github.youopensource.yougitlab.data.SolutionRequest
+import com.github.youopensource.yougitlab.diagnostics.SuggestionLatency
+import com.github.youopensource.yougitlab.index.SnippetIndexService
 import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.editor.Document
 import com.intellij.openapi.editor.Editor
 import com.intellij.openapi.editor.EditorFactory
 import com.intellij.openapi.editor.EditorKind
 import com.intellij.openapi.editor.event.CaretEvent
 import com.intellij.openapi.editor.event.CaretListener
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Key
 import com.intellij.openapi.util.TextRange
+import com.intellij.openapi.wm.ToolWindow
 import com.intellij.openapi.wm.ToolWindowManager
 import com.intellij.psi.PsiDocumentManager
 import io.reactivex.rxjava3.processors.BehaviorProcessor
+import java.lang.ref.WeakReference
 
 class MyProjectService(project: Project) {
     private val LOG: Logger = Logger.getInstance(this.javaClass)
     val publisher: BehaviorProcessor<CaretEvent> = BehaviorProcessor.create()
 
+    private var toolWindow: ToolWindow? = null
+
+    // position of the last handled caret event, caret listener is always called on EDT
+    private var lastDocument: WeakReference<Document>? = null
+    private var lastStamp = -1L
+    private var lastLine = -1
+    private var lastSelectionStart = -1
+    private var lastSelectionEnd = -1
+    private var lastQuery: String? = null
+
     init {
         LOG.debug("Service for project ${project.name} has started")
+        // starts indexing project sources in background, so local snippets are ready by the first search
+        SnippetIndexService.getInstance(project)
 
         EditorFactory.getInstance().eventMulticaster.addCaretListener(object : CaretListener {
             override fun caretPositionChanged(event: CaretEvent) {
-                if (project.isDisposed) {
+                val start = System.nanoTime()
+                val editor = event.editor
+                if (project.isDisposed || editor.editorKind != EditorKind.MAIN_EDITOR || !isToolWindowVisible(project)) {
                     return
                 }
-                val toolWindow = ToolWindowManager.getInstance(project).getToolWindow("You.com")
-                val editor = event.editor
-                if (toolWindow?.isVisible == false || editor.editorKind != EditorKind.MAIN_EDITOR) {
+                val caret = event.caret ?: return
+                val hasSelection = caret.hasSelection()
+                if (!hasSelection && YouPreferences.getInstance().state.onlySelectionSearch) {
                     return
                 }
-                val caret = event.caret!!
-                var searchText: String
-                if (caret.selectedText != null) {
-                    searchText = caret.selectedText!!
+                if (!positionChanged(editor.document, caret.logicalPosition.line, caret.selectionStart, caret.selectionEnd, hasSelection)) {
+                    return
+                }
+                var searchText = if (hasSelection) {
+                    caret.selectedText ?: return
                 } else {
-                    val onlySelectionSearch = YouPreferences.getInstance().state.onlySelectionSearch
-                    if (onlySelectionSearch) {
-                        return
-                    }
-                    val start = caret.visualLineStart
-                    val end = caret.visualLineEnd
-                    searchText = editor.document.getText(TextRange.create(start, end))
+                    editor.document.getText(TextRange.create(caret.visualLineStart, caret.visualLineEnd))
                 }
                 if (searchText.length < 3) {
                     return
                 }
-                searchText = wrapCommand(searchText, project, editor)
+                val language = getProjectLanguage(project, editor)
+                searchText = wrapCommand(searchText, language)
+                if (searchText == lastQuery) {
+                    return
+                }
+                lastQuery = searchText
                 ApiService.getRequestPublisher().onNext(
                     SolutionRequest(
                         searchText,
-                        getProjectLanguage(project, editor)
+                        language,
+                        hasSelection,
+                        project
                     )
                 )
+                SuggestionLatency.recordSince(SuggestionLatency.Stage.CARET, start)
                 publisher.onNext(event)
             }
         }) { }
 
     }
 
-    private fun wrapCommand(searchText: String, project: Project, editor: Editor): String {
+    private fun isToolWindowVisible(project: Project): Boolean {
+        val window = toolWindow ?: ToolWindowManager.getInstance(project).getToolWindow("You.com")?.also { toolWindow = it }
+        return window?.isVisible == true
+    }
+
+    /**
+     * Events that keep the caret on the same unchanged line, or keep the same selection, cannot produce a new query
+     */
+    private fun positionChanged(document: Document, line: Int, selectionStart: Int, selectionEnd: Int, hasSelection: Boolean): Boolean {
+        val stamp = document.modificationStamp
+        val start = if (hasSelection) selectionStart else -1
+        val end = if (hasSelection) selectionEnd else -1
+        if (lastDocument?.get() === document && lastStamp == stamp && lastLine == line && lastSelectionStart == start && lastSelectionEnd == end) {
+            return false
+        }
+        if (lastDocument?.get() !== document) {
+            lastDocument = WeakReference(document)
+        }
+        lastStamp = stamp
+        lastLine = line
+        lastSelectionStart = start
+        lastSelectionEnd = end
+        return true
+    }
+
+    private fun wrapCommand(searchText: String, language: String): String {
         var commandText = searchText
         val hashComment = commandText.trim().startsWith("#")
         val javaComment = commandText.trim().startsWith("//")
         if (hashComment || javaComment) {
             commandText = commandText.trim().substring(if (hashComment) 1 else 2)
         }
-        val languageSpecifier = Regex("^(?i)(java|python).*$")
-        if (!searchText.trim().matches(languageSpecifier)) {
-            val language =
-                getProjectLanguage(project, editor)
+        if (!searchText.trim().matches(LANGUAGE_SPECIFIER)) {
             commandText = "$language ${commandText.trim()}"
         }
         return commandText
     }
 
+    /**
+     * Language of a document does not change, PSI is looked up only once per document
+     */
     private fun getProjectLanguage(
         project: Project,
         editor: Editor
     ): String {
-        val languageName =
-            PsiDocumentManager.getInstance(project).getPsiFile(editor.document)?.language?.id?.toLowerCase()
+        val document = editor.document
+        document.getUserData(LANGUAGE_KEY)?.let { return it }
+        val psiFile = PsiDocumentManager.getInstance(project).getPsiFile(document)
+        var languageName = psiFile?.language?.id?.toLowerCase()
         if (languageName == "markdown") {
-            return "python"
+            languageName = "python"
+        }
+        val language = languageName ?: "python"
+        if (psiFile != null) {
+            document.putUserData(LANGUAGE_KEY, language)
         }
-        return languageName
-            ?: "python"
+        return language
+    }
+
+    companion object {
+        private val LANGUAGE_KEY: Key<String> = Key.create("you.suggestion.language")
+        private val LANGUAGE_SPECIFIER = Regex("^(?i)(java|python).*$")
     }
 }
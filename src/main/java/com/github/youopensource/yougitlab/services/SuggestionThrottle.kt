@@ -0,0 +1,73 @@
+package com.github.youopensource.yougitlab.services
+
+import com.github.youopensource.yougitlab.data.SolutionRequest
+import java.util.ArrayDeque
+import java.util.concurrent.TimeUnit
+
+/**
+ * Decides how long a suggestion request waits before it is sent and whether it may be sent at all.
+ * Explicit selections go out quickly, caret drift waits longer and the wait grows while the user is just navigating.
+ * Requests reaching the network are limited by a per-minute budget.
+ */
+class SuggestionThrottle(
+    val budgetPerMinute: Int = 30,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+    private val recentInputs = ArrayDeque<Long>()
+    private val sentRequests = ArrayDeque<Long>()
+
+    /**
+     * Records the request as user input and returns its debounce delay
+     */
+    @Synchronized
+    fun delayMillis(request: SolutionRequest): Long {
+        if (request.selection) {
+            recentInputs.clear()
+            return SELECTION_DELAY_MILLIS
+        }
+        val now = clock()
+        evict(recentInputs, now - NAVIGATION_WINDOW_MILLIS)
+        recentInputs.addLast(now)
+        // every caret move beyond the first few within the window means the user is scrolling, not reading
+        val navigation = (recentInputs.size - 2).coerceAtLeast(0)
+        return (CARET_DELAY_MILLIS + navigation * BACKOFF_STEP_MILLIS).coerceAtMost(MAX_DELAY_MILLIS)
+    }
+
+    /**
+     * @return true and consumes one request of the budget, false when the budget of the last minute is used up
+     */
+    @Synchronized
+    fun tryAcquire(): Boolean {
+        val now = clock()
+        evict(sentRequests, now - MINUTE_MILLIS)
+        if (sentRequests.size >= budgetPerMinute) {
+            return false
+        }
+        sentRequests.addLast(now)
+        return true
+    }
+
+    /**
+     * @return number of requests sent within the last minute
+     */
+    @Synchronized
+    fun usedInLastMinute(): Int {
+        evict(sentRequests, clock() - MINUTE_MILLIS)
+        return sentRequests.size
+    }
+
+    private fun evict(timestamps: ArrayDeque<Long>, before: Long) {
+        while (timestamps.isNotEmpty() && timestamps.peekFirst() < before) {
+            timestamps.removeFirst()
+        }
+    }
+
+    companion object {
+        const val SELECTION_DELAY_MILLIS = 250L
+        const val CARET_DELAY_MILLIS = 700L
+        const val MAX_DELAY_MILLIS = 2_500L
+        private const val BACKOFF_STEP_MILLIS = 300L
+        private const val NAVIGATION_WINDOW_MILLIS = 2_000L
+        private val MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1)
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.yougitlabprojects.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AsyncApiFacadeTest {
+
+    @Test
+    public void rejectedCallFailsWithIOException() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        AsyncApiFacade api = new AsyncApiFacade(null, executor);
+
+        CompletableFuture<String> result = api.submit(() -> "never");
+
+        try {
+            result.get();
+            Assert.fail("rejected call must fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void failureIsTheCauseOfExecutionException() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncApiFacade api = new AsyncApiFacade(null, executor);
+            IOException failure = new IOException("not found");
+
+            CompletableFuture<String> result = api.submit(() -> {
+                throw failure;
+            });
+
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("failed call must fail");
+            } catch (ExecutionException e) {
+                Assert.assertSame(failure, e.getCause());
+            } catch (TimeoutException e) {
+                Assert.fail("call did not finish");
+            }
+            try {
+                result.join();
+                Assert.fail("failed call must fail");
+            } catch (CompletionException e) {
+                Assert.assertSame(failure, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancellingInterruptsRunningCall() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncApiFacade api = new AsyncApiFacade(null, executor);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch interrupted = new CountDownLatch(1);
+
+            CompletableFuture<String> result = api.submit(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return "late";
+            });
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            result.cancel(true);
+
+            Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            try {
+                result.join();
+                Assert.fail("cancelled call must not complete");
+            } catch (CancellationException expected) {
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledQueuedCallIsSkipped() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncApiFacade api = new AsyncApiFacade(null, executor);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicBoolean called = new AtomicBoolean();
+
+            CompletableFuture<String> running = api.submit(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "first";
+            });
+            CompletableFuture<String> queued = api.submit(() -> {
+                called.set(true);
+                return "second";
+            });
+            queued.cancel(true);
+            release.countDown();
+
+            Assert.assertEquals("first", running.get(5, TimeUnit.SECONDS));
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertFalse(called.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.yougitlabprojects.api;
+
+import com.github.yougitlabprojects.exception.CircuitOpenException;
+import com.github.yougitlabprojects.exception.GitLabApiException;
+import org.gitlab.api.GitlabAPIException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterRepeatedFailuresAndFailsFast() {
+        CircuitBreaker breaker = new CircuitBreaker("https://down.example.com", () -> false);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            try {
+                breaker.execute(() -> {
+                    calls.incrementAndGet();
+                    throw new ConnectException("Connection refused");
+                });
+            } catch (IOException ignored) {
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(5, calls.get());
+        Assert.assertEquals(5, breaker.getRejectedCount());
+    }
+
+    @Test
+    public void clientErrorsDoNotOpenBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("https://gitlab.example.com", () -> true);
+        for (int i = 0; i < 10; i++) {
+            try {
+                breaker.execute(() -> {
+                    throw new GitLabApiException("404 Not Found", 404);
+                });
+            } catch (IOException ignored) {
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void rejectedWritesOfJavaGitlabApiDoNotOpenBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("https://gitlab.example.com", () -> true);
+        int[] responseCodes = {409, 403, 422, 409, 409, 403};
+        for (int responseCode : responseCodes) {
+            try {
+                breaker.execute(() -> {
+                    throw new GitlabAPIException("rejected", responseCode, null);
+                });
+            } catch (IOException ignored) {
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void classifiesFailuresByStatus() {
+        Assert.assertTrue(CircuitBreaker.isFailure(new GitlabAPIException("unavailable", 503, null)));
+        Assert.assertTrue(CircuitBreaker.isFailure(new GitLabApiException("timeout", 408)));
+        Assert.assertTrue(CircuitBreaker.isFailure(new ConnectException("Connection refused")));
+        Assert.assertTrue(CircuitBreaker.isFailure(new SocketTimeoutException("Read timed out")));
+        Assert.assertFalse(CircuitBreaker.isFailure(new GitlabAPIException("exists", 409, null)));
+        Assert.assertFalse(CircuitBreaker.isFailure(new GitLabApiException("not found", 404)));
+        Assert.assertFalse(CircuitBreaker.isFailure(new GitLabApiException("too many requests", 429)));
+        Assert.assertFalse(CircuitBreaker.isFailure(new IOException("malformed JSON")));
+
+        Assert.assertFalse(RetryPolicy.isTransient(new GitLabApiException("too many requests", 429)));
+        Assert.assertTrue(RetryPolicy.isTransient(new GitlabAPIException("bad gateway", 502, null)));
+    }
+
+    @Test
+    public void retriesOnlyTransientFailures() throws IOException {
+        RetryPolicy policy = new RetryPolicy(3, 1, 2);
+        AtomicInteger calls = new AtomicInteger();
+        String result = policy.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new GitLabApiException("502 Bad Gateway", 502);
+            }
+            return "ok";
+        });
+        Assert.assertEquals("ok", result);
+        Assert.assertEquals(3, calls.get());
+
+        calls.set(0);
+        try {
+            policy.execute(() -> {
+                calls.incrementAndGet();
+                throw new CircuitOpenException("https://gitlab.example.com");
+            });
+            Assert.fail("exception expected");
+        } catch (CircuitOpenException ignored) {
+        }
+        Assert.assertEquals(1, calls.get());
+    }
+}
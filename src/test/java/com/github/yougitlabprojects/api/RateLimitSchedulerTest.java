@@ -0,0 +1,48 @@
+package com.github.yougitlabprojects.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.github.yougitlabprojects.api.RateLimitScheduler.Priority.BACKGROUND;
+import static com.github.yougitlabprojects.api.RateLimitScheduler.Priority.INTERACTIVE;
+
+public class RateLimitSchedulerTest {
+
+    @Test
+    public void retryAfterBlocksAllCalls() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler();
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "1");
+        scheduler.onResponse(RateLimitScheduler.TOO_MANY_REQUESTS, headers::get);
+
+        long start = System.currentTimeMillis();
+        scheduler.acquire(INTERACTIVE);
+        scheduler.release(INTERACTIVE);
+
+        Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+        Assert.assertEquals(1, scheduler.getRateLimitedCount());
+    }
+
+    @Test
+    public void backgroundWaitsForResetWhenBudgetIsLow() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler();
+        Map<String, String> headers = new HashMap<>();
+        headers.put("RateLimit-Limit", "600");
+        headers.put("RateLimit-Remaining", "3");
+        headers.put("RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 2));
+        scheduler.onResponse(200, headers::get);
+
+        long start = System.currentTimeMillis();
+        scheduler.acquire(INTERACTIVE);
+        scheduler.release(INTERACTIVE);
+        Assert.assertTrue(System.currentTimeMillis() - start < 500);
+
+        scheduler.acquire(BACKGROUND);
+        scheduler.release(BACKGROUND);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+        Assert.assertEquals(1, scheduler.getThrottledCount());
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.yougitlabprojects.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void concurrentIdenticalRequestsShareOneCall() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> coalescer.execute("project:1", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return "project";
+                })));
+            }
+            while (coalescer.getExecutedCount() + coalescer.getCoalescedCount() < 4) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals("project", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, coalescer.getExecutedCount());
+        Assert.assertEquals(3, coalescer.getCoalescedCount());
+        Assert.assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void sequentialRequestsAreNotShared() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        AtomicInteger calls = new AtomicInteger();
+        coalescer.execute("user", calls::incrementAndGet);
+        coalescer.execute("user", calls::incrementAndGet);
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void failureIsPropagated() throws Exception {
+        new RequestCoalescer().execute("session", () -> {
+            throw new IOException("unauthorized");
+        });
+    }
+
+    @Test
+    public void serverKeepsOnlyCoalescerOfLatestToken() {
+        RequestCoalescer first = RequestCoalescer.forServer("https://gitlab.example.com/api", "token-1");
+        Assert.assertSame(first, RequestCoalescer.forServer("https://gitlab.example.com/api", "token-1"));
+
+        RequestCoalescer second = RequestCoalescer.forServer("https://gitlab.example.com/api", "token-2");
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(first, RequestCoalescer.forServer("https://gitlab.example.com/api", "token-1"));
+
+        RequestCoalescer.removeServer("https://gitlab.example.com/api");
+        Assert.assertNotSame(second, RequestCoalescer.forServer("https://gitlab.example.com/api", "token-2"));
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.yougitlabprojects.api.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void partitionedByToken() {
+        ResponseCache first = ResponseCache.forServer("https://gitlab.example.com", "first-token", null);
+        ResponseCache second = ResponseCache.forServer("https://gitlab.example.com", "second-token", null);
+        first.put("/user", response("W/\"1\"", "first"));
+
+        Assert.assertNotSame(first, second);
+        Assert.assertNull(second.get("/user"));
+        Assert.assertSame(first, ResponseCache.forServer("https://gitlab.example.com", "first-token", null));
+    }
+
+    @Test
+    public void diskTierSurvivesMemoryTier() throws IOException {
+        File directory = Files.createTempDirectory("responses").toFile();
+        ResponseCache cache = new ResponseCache("partition");
+        cache.setCacheDirectory(directory);
+        cache.put("/projects/1?per_page=100&page=1", new CachedResponse("W/\"abc\"", "2", "[]".getBytes(StandardCharsets.UTF_8)));
+
+        ResponseCache restarted = new ResponseCache("partition");
+        restarted.setCacheDirectory(directory);
+        CachedResponse response = restarted.get("/projects/1?per_page=100&page=1");
+
+        Assert.assertNotNull(response);
+        Assert.assertEquals("W/\"abc\"", response.getEtag());
+        Assert.assertEquals("2", response.getNextPage());
+        Assert.assertEquals("[]", new String(response.getBody(), StandardCharsets.UTF_8));
+        restarted.clear();
+        directory.delete();
+    }
+
+    @Test
+    public void diskTierIsTrimmedByRunningTotal() throws IOException {
+        File directory = Files.createTempDirectory("responses").toFile();
+        ResponseCache cache = new ResponseCache("partition", 10_000);
+        cache.setCacheDirectory(directory);
+        byte[] body = new byte[1_000];
+        for (int i = 0; i < 30; i++) {
+            cache.put("/projects/" + i, new CachedResponse("W/\"" + i + "\"", null, body));
+        }
+
+        File[] files = new File(directory, "partition").listFiles();
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        Assert.assertTrue(total <= 10_000);
+        Assert.assertEquals(total, cache.getDiskBytes());
+        cache.clear();
+        directory.delete();
+    }
+
+    private CachedResponse response(String etag, String body) {
+        return new CachedResponse(etag, null, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.yougitlabprojects.merge.helper;
 
 import com.github.yougitlabprojects.api.ApiFacade;
+import com.github.yougitlabprojects.api.dto.ProjectDto;
 import com.github.yougitlabprojects.configuration.SettingsState;
 import com.github.yougitlabprojects.dto.GitlabServer;
 import com.intellij.openapi.application.ApplicationManager;
@@ -67,6 +68,10 @@ public class GitLabProjectMatcherTest {
         Optional<GitlabProject> resolvedProject = gitLabProjectMatcher.resolveProject(projectState, remote, null);
         Assert.assertNotNull(resolvedProject);
         Assert.assertEquals(shouldBeResolved, resolvedProject.isPresent());
+        if (shouldBeResolved) {
+            Assert.assertSame(project, resolvedProject.get());
+            Assert.assertEquals(Integer.valueOf(1), projectState.getProjectId(remoteUrl));
+        }
     }
 
 
@@ -90,9 +95,16 @@ public class GitLabProjectMatcherTest {
 
     private class DummyApiFacade extends ApiFacade {
         private Map<Integer,GitlabProject> projects = new HashMap<>();
+        private Map<Integer,ProjectDto> projectDtos = new HashMap<>();
 
         public void addProject(Integer id, GitlabProject project) {
             projects.put(id, project);
+            ProjectDto projectDto = new ProjectDto();
+            projectDto.setId(id);
+            projectDto.setName(project.getName());
+            projectDto.setHttpUrl(project.getHttpUrl());
+            projectDto.setSshUrl(project.getSshUrl());
+            projectDtos.put(id, projectDto);
         }
 
         @Override
@@ -101,8 +113,8 @@ public class GitLabProjectMatcherTest {
         }
 
         @Override
-        public Collection<GitlabProject> getProjects() throws Throwable {
-            return projects.values();
+        public Collection<ProjectDto> getProjects() throws IOException {
+            return projectDtos.values();
         }
     }
 
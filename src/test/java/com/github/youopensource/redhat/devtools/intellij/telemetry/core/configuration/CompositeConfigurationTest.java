@@ -0,0 +1,97 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.configuration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompositeConfigurationTest {
+
+    @Test
+    public void firstConfigurationHavingKeyWins() {
+        CountingConfiguration first = new CountingConfiguration();
+        first.put("mode", "debug");
+        CountingConfiguration second = new CountingConfiguration();
+        second.put("mode", "normal");
+        second.put("key", "value");
+
+        TestConfiguration composite = new TestConfiguration(first, second);
+
+        Assert.assertEquals("debug", composite.get("mode"));
+        Assert.assertEquals("value", composite.get("key"));
+        Assert.assertNull(composite.get("missing"));
+    }
+
+    @Test
+    public void cachesResolvedAndMissingKeys() {
+        CountingConfiguration source = new CountingConfiguration();
+        source.put("mode", "normal");
+        TestConfiguration composite = new TestConfiguration(source);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("normal", composite.get("mode"));
+            Assert.assertNull(composite.get("missing"));
+        }
+
+        Assert.assertEquals(2, source.lookups);
+        Assert.assertEquals(2, composite.resolved);
+    }
+
+    @Test
+    public void invalidateQueriesConfigurationsAgain() {
+        CountingConfiguration source = new CountingConfiguration();
+        source.put("mode", "normal");
+        TestConfiguration composite = new TestConfiguration(source);
+        Assert.assertEquals("normal", composite.get("mode"));
+        Assert.assertNull(composite.get("missing"));
+
+        source.put("mode", "disabled");
+        source.put("missing", "found");
+        Assert.assertEquals("normal", composite.get("mode"));
+        composite.invalidate();
+
+        Assert.assertEquals("disabled", composite.get("mode"));
+        Assert.assertEquals("found", composite.get("missing"));
+    }
+
+    private static class TestConfiguration extends CompositeConfiguration {
+
+        private final List<IConfiguration> configurations;
+        private int resolved;
+
+        TestConfiguration(IConfiguration... configurations) {
+            this.configurations = Arrays.asList(configurations);
+        }
+
+        @Override
+        protected List<IConfiguration> getConfigurations() {
+            resolved++;
+            return configurations;
+        }
+
+        @Override
+        public void put(String key, String value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class CountingConfiguration implements IConfiguration {
+
+        private final Map<String, String> values = new HashMap<>();
+        private int lookups;
+
+        @Override
+        public String get(String key) {
+            lookups++;
+            return values.get(key);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            values.put(key, value);
+        }
+    }
+}
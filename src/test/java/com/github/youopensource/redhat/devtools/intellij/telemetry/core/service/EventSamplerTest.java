@@ -0,0 +1,42 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.UUID;
+
+public class EventSamplerTest {
+
+    @Test
+    public void decisionIsStablePerUserAndEvent() {
+        EventSampler sampler = new EventSampler(name -> 0.5, () -> "3b241101-e2bb-4255-8caf-4136c566a962");
+
+        boolean first = sampler.isSampled("intellij_user_click");
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(first, sampler.isSampled("intellij_user_click"));
+        }
+    }
+
+    @Test
+    public void fullAndZeroRatesSkipHashing() {
+        Assert.assertTrue(new EventSampler(name -> 1, () -> {
+            throw new AssertionError("user id is not needed");
+        }).isSampled("startup"));
+        Assert.assertFalse(new EventSampler(name -> 0, () -> {
+            throw new AssertionError("user id is not needed");
+        }).isSampled("startup"));
+    }
+
+    @Test
+    public void shareOfSampledUsersMatchesRate() {
+        int users = 20_000;
+        int sampled = 0;
+        for (int i = 0; i < users; i++) {
+            String userId = new UUID(i * 0x9E3779B97F4A7C15L, i).toString();
+            if (new EventSampler(name -> 0.1, () -> userId).isSampled("intellij_user_search")) {
+                sampled++;
+            }
+        }
+        Assert.assertEquals(0.1, sampled / (double) users, 0.01);
+    }
+}
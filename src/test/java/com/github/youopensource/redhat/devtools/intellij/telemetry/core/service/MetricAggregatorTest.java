@@ -0,0 +1,96 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class MetricAggregatorTest {
+
+    @Test
+    public void sendsOneSummaryPerActionName() {
+        List<TelemetryEvent> sent = new ArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MetricAggregator aggregator = new MetricAggregator(sent::add, () -> scheduler);
+        for (int i = 1; i <= 100; i++) {
+            aggregator.record("search", Duration.ofMillis(i), i % 10 == 0);
+        }
+        aggregator.record("click", Duration.ofMillis(5), false);
+
+        aggregator.flush();
+        scheduler.shutdownNow();
+
+        Assert.assertEquals(2, sent.size());
+        TelemetryEvent search = sent.stream().filter(event -> event.getName().equals("search")).findFirst().get();
+        Assert.assertEquals(TelemetryEvent.Type.ACTION, search.getType());
+        Assert.assertEquals("100", search.getProperties().get(MetricAggregator.PROP_COUNT));
+        Assert.assertEquals("10", search.getProperties().get(MetricAggregator.PROP_ERRORS));
+        Assert.assertEquals("50", search.getProperties().get(MetricAggregator.PROP_DURATION_P50));
+        Assert.assertEquals("95", search.getProperties().get(MetricAggregator.PROP_DURATION_P95));
+        Assert.assertEquals("99", search.getProperties().get(MetricAggregator.PROP_DURATION_P99));
+        Assert.assertEquals("100", search.getProperties().get(MetricAggregator.PROP_DURATION_MAX));
+    }
+
+    @Test
+    public void sendsNothingForQuietInterval() {
+        List<TelemetryEvent> sent = new ArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MetricAggregator aggregator = new MetricAggregator(sent::add, () -> scheduler);
+        aggregator.record("search", null, false);
+
+        aggregator.flush();
+        aggregator.flush();
+        scheduler.shutdownNow();
+
+        Assert.assertEquals(1, sent.size());
+        Assert.assertEquals("1", sent.get(0).getProperties().get(MetricAggregator.PROP_COUNT));
+        Assert.assertNull(sent.get(0).getProperties().get(MetricAggregator.PROP_DURATION_P50));
+    }
+
+    @Test
+    public void reportsElapsedInterval() {
+        List<TelemetryEvent> sent = new ArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        long[] now = {0};
+        MetricAggregator aggregator = new MetricAggregator(sent::add, () -> scheduler, () -> now[0]);
+        aggregator.record("search", null, false);
+        now[0] = TimeUnit.SECONDS.toNanos(75);
+        aggregator.flush();
+        now[0] = TimeUnit.SECONDS.toNanos(135);
+        aggregator.flush();
+        aggregator.record("search", null, false);
+        now[0] = TimeUnit.SECONDS.toNanos(200);
+        aggregator.flush();
+        scheduler.shutdownNow();
+
+        Assert.assertEquals(2, sent.size());
+        Assert.assertEquals("00:01:15", sent.get(0).getProperties().get(MetricAggregator.PROP_INTERVAL));
+        Assert.assertEquals("00:01:05", sent.get(1).getProperties().get(MetricAggregator.PROP_INTERVAL));
+    }
+
+    @Test
+    public void samplesDurationsOnlyAmongTimedActions() {
+        List<TelemetryEvent> sent = new ArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        MetricAggregator aggregator = new MetricAggregator(sent::add, () -> scheduler);
+        for (int i = 0; i < 2_000_000; i++) {
+            aggregator.record("search", null, false);
+        }
+        for (int i = 0; i < MetricAggregator.MAX_SAMPLES; i++) {
+            aggregator.record("search", Duration.ofMillis(1), false);
+        }
+        for (int i = 0; i < 50_000; i++) {
+            aggregator.record("search", Duration.ofMillis(1000), false);
+        }
+
+        aggregator.flush();
+        scheduler.shutdownNow();
+
+        Assert.assertEquals("1000", sent.get(0).getProperties().get(MetricAggregator.PROP_DURATION_P50));
+    }
+}
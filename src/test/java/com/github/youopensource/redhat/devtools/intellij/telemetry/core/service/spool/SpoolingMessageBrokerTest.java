@@ -0,0 +1,92 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.spool;
+
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.IMessageBroker;
+import com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.TelemetryEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class SpoolingMessageBrokerTest {
+
+    @Test
+    public void commitsDeliveredEvents() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        RecordingBroker delegate = new RecordingBroker(true);
+        SpoolingMessageBroker broker = new SpoolingMessageBroker(delegate, TelemetrySpool.open(directory));
+        broker.send(new TelemetryEvent(TelemetryEvent.Type.ACTION, "first"));
+        broker.send(new TelemetryEvent(TelemetryEvent.Type.ACTION, "second"));
+        broker.dispose();
+
+        Assert.assertEquals(2, delegate.events.size());
+        Assert.assertTrue(delegate.disposed);
+        TelemetrySpool reopened = TelemetrySpool.open(directory);
+        Assert.assertTrue(reopened.isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void keepsEventsWhoseDeliveryFailed() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        RecordingBroker delegate = new RecordingBroker(false);
+        SpoolingMessageBroker broker = new SpoolingMessageBroker(delegate, TelemetrySpool.open(directory));
+        broker.send(new TelemetryEvent(TelemetryEvent.Type.ACTION, "lost"));
+        broker.dispose();
+
+        Assert.assertEquals(1, delegate.events.size());
+        TelemetrySpool reopened = TelemetrySpool.open(directory);
+        Assert.assertEquals(1, reopened.read(10).getRecords().size());
+        reopened.close();
+    }
+
+    @Test
+    public void resendsEventsWithCreationTimeAndSameMessageId() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetryEvent event = new TelemetryEvent(TelemetryEvent.Type.ACTION, "retried");
+        RecordingBroker failing = new RecordingBroker(false);
+        SpoolingMessageBroker broker = new SpoolingMessageBroker(failing, TelemetrySpool.open(directory));
+        broker.send(event);
+        broker.dispose();
+
+        RecordingBroker delivering = new RecordingBroker(true);
+        new SpoolingMessageBroker(delivering, TelemetrySpool.open(directory)).dispose();
+
+        Assert.assertEquals(event.getTimestamp(), delivering.events.get(0).getTimestamp());
+        Assert.assertEquals(failing.messageIds.get(0), delivering.messageIds.get(0));
+    }
+
+    private static class RecordingBroker implements IMessageBroker {
+
+        private final boolean delivered;
+        private final List<TelemetryEvent> events = new ArrayList<>();
+        private final List<UUID> messageIds = new ArrayList<>();
+        private boolean disposed;
+
+        private RecordingBroker(boolean delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void send(TelemetryEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> deliver(TelemetryEvent event, UUID messageId) {
+            events.add(event);
+            messageIds.add(messageId);
+            return CompletableFuture.completedFuture(delivered);
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+}
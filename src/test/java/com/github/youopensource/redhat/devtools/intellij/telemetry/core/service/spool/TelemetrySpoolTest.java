@@ -0,0 +1,139 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.service.spool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TelemetrySpoolTest {
+
+    @Test
+    public void readsRecordsUntilCommitted() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetrySpool spool = TelemetrySpool.open(directory);
+        spool.append(bytes("first"));
+        spool.append(bytes("second"));
+        spool.append(bytes("third"));
+
+        TelemetrySpool.Batch batch = spool.read(2);
+        Assert.assertEquals(List.of("first", "second"), strings(batch));
+        Assert.assertEquals(List.of("first", "second"), strings(spool.read(2)));
+
+        spool.commit(batch);
+        Assert.assertEquals(List.of("third"), strings(spool.read(10)));
+        Assert.assertFalse(spool.isEmpty());
+        spool.commit(spool.read(10));
+        Assert.assertTrue(spool.isEmpty());
+        spool.close();
+    }
+
+    @Test
+    public void keepsUnsentRecordsAcrossReopen() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetrySpool spool = TelemetrySpool.open(directory);
+        spool.append(bytes("sent"));
+        spool.commit(spool.read(1));
+        spool.append(bytes("pending"));
+        spool.close();
+
+        TelemetrySpool reopened = TelemetrySpool.open(directory);
+        Assert.assertEquals(List.of("pending"), strings(reopened.read(10)));
+        reopened.append(bytes("later"));
+        Assert.assertEquals(List.of("pending", "later"), strings(reopened.read(10)));
+        reopened.close();
+    }
+
+    @Test
+    public void dropsTornRecord() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetrySpool spool = TelemetrySpool.open(directory);
+        spool.append(bytes("complete"));
+        spool.append(bytes("torn record"));
+        spool.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("spool-0.dat").toFile(), "rw")) {
+            // corrupt the payload of the second record, as if the IDE died while writing it
+            file.seek(8 + 8 + 8 + 2);
+            file.write('X');
+        }
+
+        TelemetrySpool reopened = TelemetrySpool.open(directory);
+        reopened.append(bytes("next"));
+        Assert.assertEquals(List.of("complete", "next"), strings(reopened.read(10)));
+        reopened.close();
+    }
+
+    @Test
+    public void rotatesSegmentsAndDropsOldestOverCap() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetrySpool spool = TelemetrySpool.open(directory);
+        byte[] record = new byte[TelemetrySpool.SEGMENT_BYTES / 4];
+        int records = TelemetrySpool.MAX_SEGMENTS * 3 + 3;
+        for (int i = 0; i < records; i++) {
+            record[0] = (byte) i;
+            Assert.assertTrue(spool.append(record));
+        }
+
+        Assert.assertEquals(TelemetrySpool.MAX_SEGMENTS, segmentFiles(directory));
+        Assert.assertEquals(3, spool.getDroppedCount());
+        List<byte[]> remaining = new ArrayList<>();
+        for (TelemetrySpool.Batch batch = spool.read(5); !batch.isEmpty(); batch = spool.read(5)) {
+            remaining.addAll(batch.getRecords());
+            spool.commit(batch);
+        }
+        Assert.assertEquals(records - 3, remaining.size());
+        Assert.assertEquals(3, remaining.get(0)[0]);
+        // consumed segments are deleted
+        Assert.assertEquals(1, segmentFiles(directory));
+        spool.close();
+    }
+
+    @Test
+    public void ignoresConsumedSegmentLeftOnDisk() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetrySpool spool = TelemetrySpool.open(directory);
+        byte[] record = new byte[TelemetrySpool.MAX_RECORD_BYTES];
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(spool.append(record));
+        }
+        byte[] consumed = Files.readAllBytes(directory.resolve("spool-0.dat"));
+        spool.commit(spool.read(10));
+        spool.append(bytes("pending"));
+        spool.close();
+        // a segment still mapped cannot be deleted on Windows and stays on disk
+        Files.write(directory.resolve("spool-0.dat"), consumed);
+
+        TelemetrySpool reopened = TelemetrySpool.open(directory);
+        Assert.assertEquals(List.of("pending"), strings(reopened.read(10)));
+        Assert.assertFalse(Files.exists(directory.resolve("spool-0.dat")));
+        reopened.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void spoolIsUsedByOneProcessOnly() throws IOException {
+        Path directory = Files.createTempDirectory("spool");
+        TelemetrySpool.open(directory);
+        TelemetrySpool.open(directory);
+    }
+
+    private static long segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("spool-")).count();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(TelemetrySpool.Batch batch) {
+        return batch.getRecords().stream().map(record -> new String(record, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+}
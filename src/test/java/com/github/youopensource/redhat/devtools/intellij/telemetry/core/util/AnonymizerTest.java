@@ -0,0 +1,116 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class AnonymizerTest {
+
+    private static final String TMP_DIR = "/home/alice/tmp";
+    private static final String HOME_DIR = "/home/alice";
+    private static final String USER_NAME = "alice";
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+            "[A-Z0-9._%+-]+@[A-Z0-9.-]+\\.[A-Z]{2,6}",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern IP_PATTERN = Pattern.compile(
+            "(([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.){3}([01]?\\d\\d?|2[0-4]\\d|25[0-5])");
+
+    private final Anonymizer anonymizer = new Anonymizer(TMP_DIR, HOME_DIR, USER_NAME);
+
+    @Test
+    public void replacesAllPatterns() {
+        Assert.assertEquals(
+                "<TMPDIR>/x.log, <HOMEDIR>/.config, <USER> from <IP> wrote <EMAIL>",
+                anonymizer.anonymize("/home/alice/tmp/x.log, /home/alice/.config, alice from 10.0.0.1 wrote bob@example.com"));
+    }
+
+    @Test
+    public void returnsSameInstanceWhenNothingToReplace() {
+        String message = "Connection refused: no further information";
+        Assert.assertSame(message, anonymizer.anonymize(message));
+        Assert.assertNull(anonymizer.anonymize(null));
+        Assert.assertEquals("", anonymizer.anonymize(""));
+    }
+
+    @Test
+    public void matchesChainedReplacements() {
+        String[] inputs = {
+                "alice@example.com",
+                "mail to alice.smith@corp.example.org now",
+                "1.2.3.256 and 1234.5.6.78 and 255.255.255.255",
+                "01.002.3.4.5.6.7.8",
+                "192.168.0.1@host.com",
+                "a@b@c.com x@y.z.co.uk q@w.abcdefghij",
+                "/home/alice/tmp/home/alice/alice",
+                "/home/alicealice /home/alice/tmpx alice_1.2.3.4@mail.de",
+                "x@-.io a.b@c..de @@@ ..@.. 9.9.9.9.9",
+                "Caused by: java.io.IOException at /home/alice/projects/app (alice@10.1.1.1)"
+        };
+        for (String input : inputs) {
+            Assert.assertEquals(input, chained(input, TMP_DIR, HOME_DIR, USER_NAME), anonymizer.anonymize(input));
+        }
+    }
+
+    @Test
+    public void matchesChainedReplacementsForRandomInput() {
+        Random random = new Random(42);
+        String[] fragments = {
+                TMP_DIR, HOME_DIR, USER_NAME, "/", ".", "@", "-", "_", "%", "+", " ", "<", ">",
+                "0", "1", "2", "25", "255", "256", "9", "99", "a", "Z", "com", "example", "x.y"
+        };
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                builder.append(fragments[random.nextInt(fragments.length)]);
+            }
+            String input = builder.toString();
+            Assert.assertEquals(input, chained(input, TMP_DIR, HOME_DIR, USER_NAME), anonymizer.anonymize(input));
+        }
+    }
+
+    @Test
+    public void matchesChainedReplacementsAfterHugeMessage() {
+        StringBuilder huge = new StringBuilder();
+        while (huge.length() < 100_000) {
+            huge.append("at /home/alice/tmp/x.log by alice@example.com from 10.0.0.1 ");
+        }
+        String[] inputs = {
+                huge.toString(),
+                "/home/alice and alice",
+                "nothing to replace",
+                huge.substring(0, 70_000),
+                "10.0.0.1"
+        };
+        for (String input : inputs) {
+            Assert.assertEquals(chained(input, TMP_DIR, HOME_DIR, USER_NAME), anonymizer.anonymize(input));
+        }
+    }
+
+    @Test
+    public void matchesChainedReplacementsForOverlappingLiterals() {
+        Anonymizer overlapping = new Anonymizer("C:\\Users\\ab\\AppData\\Local\\Temp\\", "C:\\Users\\ab", "ab");
+        String input = "C:\\Users\\ab\\AppData\\Local\\Temp\\C:\\Users\\abab\\x ab@ab.com C:\\Users\\ab\\AppData";
+        Assert.assertEquals(
+                chained(input, "C:\\Users\\ab\\AppData\\Local\\Temp\\", "C:\\Users\\ab", "ab"),
+                overlapping.anonymize(input));
+    }
+
+    @Test
+    public void usesChainedReplacementsForLiteralsMatchingPlaceholders() {
+        Anonymizer placeholder = new Anonymizer("/tmp", "/home/DIR", "DIR");
+        String input = "/tmp/a /home/DIR/b DIR";
+        Assert.assertEquals(chained(input, "/tmp", "/home/DIR", "DIR"), placeholder.anonymize(input));
+    }
+
+    private static String chained(String string, String tmpDir, String homeDir, String userName) {
+        string = string.replace(tmpDir, AnonymizeUtils.ANONYMOUS_TMPDIR);
+        string = string.replace(homeDir, AnonymizeUtils.ANONYMOUS_HOMEDIR);
+        string = IP_PATTERN.matcher(string).replaceAll(AnonymizeUtils.ANONYMOUS_IP);
+        string = string.replace(userName, AnonymizeUtils.ANONYMOUS_USER_NAME);
+        return EMAIL_PATTERN.matcher(string).replaceAll(AnonymizeUtils.ANONYMOUS_EMAIL);
+    }
+}
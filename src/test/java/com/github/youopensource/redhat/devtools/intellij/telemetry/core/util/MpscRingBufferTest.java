@@ -0,0 +1,101 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        Assert.assertEquals(32, new MpscRingBuffer<>(32).capacity());
+        Assert.assertEquals(64, new MpscRingBuffer<>(35).capacity());
+        Assert.assertEquals(2, new MpscRingBuffer<>(0).capacity());
+    }
+
+    @Test
+    public void rejectsAndCountsElementsWhenFull() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+
+        Assert.assertFalse(buffer.offer(4));
+        Assert.assertFalse(buffer.offer(5));
+        Assert.assertEquals(2, buffer.getDroppedCount());
+        Assert.assertEquals(4, buffer.size());
+
+        List<Integer> drained = new ArrayList<>();
+        Assert.assertEquals(4, buffer.drainTo(drained::add));
+        Assert.assertEquals(List.of(0, 1, 2, 3), drained);
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertNull(buffer.poll());
+    }
+
+    @Test
+    public void wrapsAroundManyLaps() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(buffer.offer(i));
+            Assert.assertTrue(buffer.offer(-i));
+            Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+            Assert.assertEquals(Integer.valueOf(-i), buffer.poll());
+        }
+        Assert.assertEquals(0, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void manyProducersLoseNoElement() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 100_000;
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(256);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers);
+        AtomicLong accepted = new AtomicLong();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        if (buffer.offer(producer << 32 | i)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        long[] received = new long[1];
+        Consumer<Long> consumer = element -> {
+            int producer = (int) (element >>> 32);
+            long sequence = element & 0xFFFFFFFFL;
+            // elements of one producer arrive in order and exactly once
+            Assert.assertTrue(sequence > lastSeen[producer]);
+            lastSeen[producer] = sequence;
+            received[0]++;
+        };
+        start.countDown();
+        while (done.getCount() > 0) {
+            buffer.drainTo(consumer);
+        }
+        buffer.drainTo(consumer);
+
+        Assert.assertEquals(accepted.get(), received[0]);
+        Assert.assertEquals((long) producers * perProducer, accepted.get() + buffer.getDroppedCount());
+        Assert.assertTrue(buffer.isEmpty());
+    }
+}
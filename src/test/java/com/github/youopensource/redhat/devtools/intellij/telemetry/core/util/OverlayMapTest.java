@@ -0,0 +1,37 @@
+package com.github.youopensource.redhat.devtools.intellij.telemetry.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class OverlayMapTest {
+
+    @Test
+    public void topEntriesHideBaseEntries() {
+        Map<String, String> top = new HashMap<>();
+        top.put("name", "event");
+        top.put("count", "3");
+        Map<String, String> base = new HashMap<>();
+        base.put("name", "static");
+        base.put("version", "1.0");
+
+        Map<String, String> overlay = new OverlayMap<>(top, base);
+
+        Assert.assertEquals("event", overlay.get("name"));
+        Assert.assertEquals("1.0", overlay.get("version"));
+        Assert.assertNull(overlay.get("missing"));
+        Assert.assertEquals(3, overlay.size());
+        Map<String, String> expected = new HashMap<>();
+        expected.put("name", "event");
+        expected.put("count", "3");
+        expected.put("version", "1.0");
+        Assert.assertEquals(expected, new HashMap<>(overlay));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void isReadOnly() {
+        new OverlayMap<String, String>(new HashMap<>(), new HashMap<>()).put("key", "value");
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.youopensource.yougitlab.data.cache;
+
+import com.github.youopensource.yougitlab.data.CodeSuggestionApiResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class SuggestionCacheTest {
+
+    private static final long TTL_MILLIS = 1_000;
+
+    private final long[] now = {0};
+
+    @Test
+    public void expiresEntriesAfterTtl() throws IOException {
+        File directory = directory();
+        SuggestionCache cache = cache(directory, 10, 1024 * 1024);
+        cache.put("val answer", "kotlin", 1, result(1));
+
+        now[0] = TTL_MILLIS;
+        Assert.assertNotNull(cache.get("val answer", "kotlin", 1));
+        now[0] = TTL_MILLIS + 1;
+        Assert.assertNull(cache.get("val answer", "kotlin", 1));
+        // expired entries are removed from disk as well
+        Assert.assertEquals(0, files(directory));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFromMemory() {
+        SuggestionCache cache = cache(null, 2, 0);
+        cache.put("first", "kotlin", 1, result(1));
+        cache.put("second", "kotlin", 1, result(2));
+        Assert.assertNotNull(cache.get("first", "kotlin", 1));
+        cache.put("third", "kotlin", 1, result(3));
+
+        Assert.assertNull(cache.get("second", "kotlin", 1));
+        Assert.assertNotNull(cache.get("first", "kotlin", 1));
+        Assert.assertNotNull(cache.get("third", "kotlin", 1));
+    }
+
+    @Test
+    public void keysKeepCaseAndCollapseWhitespace() {
+        SuggestionCache cache = cache(null, 10, 0);
+        cache.put("new  Foo()", "java", 1, result(1));
+
+        Assert.assertNotNull(cache.get(" new Foo() ", "java", 1));
+        Assert.assertNull(cache.get("new foo()", "java", 1));
+        Assert.assertNull(cache.get("new Foo()", "java", 2));
+    }
+
+    @Test
+    public void diskTierSurvivesRestartAndIsTrimmed() throws IOException {
+        File directory = directory();
+        SuggestionCache cache = cache(directory, 1, 1024 * 1024);
+        cache.put("persisted", "kotlin", 1, result(7));
+
+        CodeSuggestionApiResult restored = cache(directory, 1, 1024 * 1024).get("persisted", "kotlin", 1);
+        Assert.assertNotNull(restored);
+        Assert.assertEquals(Integer.valueOf(7), restored.getPage());
+
+        long limit = bytes(directory) * 5;
+        SuggestionCache small = cache(directory, 1, limit);
+        for (int i = 0; i < 20; i++) {
+            small.put("query " + i, "kotlin", 1, result(i));
+        }
+        Assert.assertTrue(bytes(directory) <= limit);
+        Assert.assertTrue(files(directory) < 20);
+    }
+
+    private SuggestionCache cache(File directory, int memoryEntries, long diskLimitBytes) {
+        return new SuggestionCache(directory, TTL_MILLIS, memoryEntries, diskLimitBytes, () -> now[0]);
+    }
+
+    private static CodeSuggestionApiResult result(int page) {
+        CodeSuggestionApiResult result = new CodeSuggestionApiResult();
+        result.setPage(page);
+        return result;
+    }
+
+    private static File directory() throws IOException {
+        return Files.createTempDirectory("suggestions").toFile();
+    }
+
+    private static int files(File directory) {
+        File[] files = directory.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private static long bytes(File directory) {
+        long total = 0;
+        for (File file : directory.listFiles()) {
+            total += file.length();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.youopensource.yougitlab.data.repository;
+
+import com.github.youopensource.yougitlab.data.AnalyticsEvent;
+import kotlin.Unit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AnalyticsQueueTest {
+
+    private static final long NEVER = 60_000;
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void dropsOldestEventsWhenFull() {
+        AnalyticsQueue queue = new AnalyticsQueue(this::send, 3, 10, NEVER);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(event("event" + i));
+        }
+        queue.close(2_000);
+
+        Assert.assertEquals(List.of("event2", "event3", "event4"), sent);
+        Assert.assertEquals(2, queue.getDroppedCount());
+        Assert.assertEquals(3, queue.getSentCount());
+    }
+
+    @Test
+    public void flushesAsSoonAsBatchIsFull() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(3);
+        AnalyticsQueue queue = new AnalyticsQueue(event -> {
+            delivered.countDown();
+            return Unit.INSTANCE;
+        }, 10, 3, NEVER);
+        queue.offer(event("first"));
+        queue.offer(event("second"));
+        Assert.assertFalse(delivered.await(100, TimeUnit.MILLISECONDS));
+        queue.offer(event("third"));
+
+        Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        queue.close(2_000);
+    }
+
+    @Test
+    public void closeSendsRemainingEvents() {
+        AnalyticsQueue queue = new AnalyticsQueue(this::send, 10, 10, NEVER);
+        queue.offer(event("first"));
+        queue.offer(event("second"));
+        queue.close(2_000);
+        queue.offer(event("late"));
+
+        Assert.assertEquals(List.of("first", "second"), sent);
+    }
+
+    private Unit send(AnalyticsEvent event) {
+        sent.add(event.getEventName());
+        return Unit.INSTANCE;
+    }
+
+    private static AnalyticsEvent event(String name) {
+        return new AnalyticsEvent(name, null, null);
+    }
+}
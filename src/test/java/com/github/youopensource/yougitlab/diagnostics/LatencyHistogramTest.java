@@ -0,0 +1,46 @@
+package com.github.youopensource.yougitlab.diagnostics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = LatencyHistogram.bucket(micros);
+            Assert.assertTrue(micros <= LatencyHistogram.upperBound(bucket));
+            Assert.assertTrue(bucket == 0 || micros > LatencyHistogram.upperBound(bucket - 1));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(500, histogram.percentileMillis(0.50), 500 * 0.07);
+        Assert.assertEquals(950, histogram.percentileMillis(0.95), 950 * 0.07);
+        Assert.assertEquals(990, histogram.percentileMillis(0.99), 990 * 0.07);
+        Assert.assertEquals(1000, histogram.percentileMillis(1), 0.001);
+        Assert.assertEquals(500.5, histogram.getMeanMillis(), 0.001);
+    }
+
+    @Test
+    public void emptyAndResetHistogramReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.percentileMillis(0.99), 0);
+
+        histogram.record(TimeUnit.SECONDS.toNanos(3));
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.percentileMillis(0.5), 0);
+        Assert.assertEquals(0, histogram.getMaxMillis(), 0);
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.youopensource.yougitlab.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SnippetIndexTest {
+
+    @Test
+    public void tokenizerSplitsIdentifiers() {
+        List<String> terms = SnippetTokenizer.tokenize("public void parseHTTPHeader(String max_retry_count)", "java");
+
+        Assert.assertEquals(Arrays.asList("parse", "http", "header", "parsehttpheader", "max", "retry", "count", "max_retry_count"), terms);
+        Assert.assertEquals("kotlin", SnippetTokenizer.languageOf("Service.kt"));
+        Assert.assertNull(SnippetTokenizer.languageOf("README.md"));
+    }
+
+    @Test
+    public void findsMostRelevantSnippet() throws IOException {
+        SnippetIndex index = SnippetIndex.open(directory());
+        index.update("/src/Http.java", 1, "java", "class Http {\n  void retryRequest(int retryCount) {\n    sendRequest();\n  }\n}");
+        index.update("/src/Files.java", 1, "java", "class Files {\n  void copyFile(File source) {\n  }\n}");
+        index.flush();
+
+        List<SnippetMatch> matches = index.search("java retry request", "java", 5);
+
+        Assert.assertEquals(1, matches.size());
+        Assert.assertEquals("/src/Http.java", matches.get(0).getSnippet().getPath());
+        Assert.assertEquals(0, matches.get(0).getSnippet().getStartLine());
+    }
+
+    @Test
+    public void newerVersionShadowsOlderOne() throws IOException {
+        File directory = directory();
+        SnippetIndex index = SnippetIndex.open(directory);
+        index.update("/src/a.py", 1, "python", "def load_config():\n    pass");
+        index.update("/src/b.py", 1, "python", "def load_users():\n    pass");
+        index.flush();
+        index.update("/src/a.py", 2, "python", "def save_config():\n    pass");
+        index.remove("/src/b.py");
+        index.flush();
+
+        SnippetIndex reopened = SnippetIndex.open(directory);
+
+        Assert.assertTrue(reopened.search("load", "python", 5).isEmpty());
+        Assert.assertEquals(1, reopened.search("save config", "python", 5).size());
+        Assert.assertTrue(reopened.isCurrent("/src/a.py", 2));
+        Assert.assertFalse(reopened.isCurrent("/src/a.py", 1));
+        Assert.assertEquals(1, reopened.indexedPaths().size());
+    }
+
+    @Test
+    public void mergesSegments() throws IOException {
+        File directory = directory();
+        SnippetIndex index = SnippetIndex.open(directory);
+        for (int i = 0; i <= SnippetIndex.MAX_SEGMENTS; i++) {
+            index.update("/src/File" + i + ".java", i, "java", "void handler" + i + "() {}");
+            index.update("/src/Shared.java", i, "java", "void sharedVersion" + i + "() {}");
+            index.flush();
+        }
+
+        Assert.assertTrue(index.getSegmentCount() < SnippetIndex.MAX_SEGMENTS);
+        Assert.assertEquals(SnippetIndex.MAX_SEGMENTS + 2, index.getSnippetCount());
+        Assert.assertTrue(index.search("sharedversion0", "java", 5).isEmpty());
+        Assert.assertEquals(1, SnippetIndex.open(directory).search("handler3", "java", 5).size());
+    }
+
+    @Test
+    public void smallFlushesDoNotRewriteLargeSegment() throws IOException {
+        File directory = directory();
+        SnippetIndex index = SnippetIndex.open(directory);
+        for (int i = 0; i < 200; i++) {
+            index.update("/src/File" + i + ".java", 1, "java", "void handler" + i + "() {}");
+        }
+        index.flush();
+        File large = new File(directory, "segment-0");
+        for (int i = 0; i < 4 * SnippetIndex.MAX_SEGMENTS; i++) {
+            index.update("/src/Small" + i + ".java", 1, "java", "void small" + i + "() {}");
+            index.flush();
+        }
+
+        Assert.assertTrue(large.isFile());
+        Assert.assertTrue(index.getSegmentCount() <= SnippetIndex.MAX_SEGMENTS);
+        Assert.assertEquals(200 + 4 * SnippetIndex.MAX_SEGMENTS, index.getSnippetCount());
+    }
+
+    @Test
+    public void deletionsSurvivePartialMerge() throws IOException {
+        SnippetIndex index = SnippetIndex.open(directory());
+        for (int i = 0; i < 50; i++) {
+            index.update("/src/File" + i + ".java", 1, "java", "void handler" + i + "() {}");
+        }
+        index.flush();
+        index.remove("/src/File1.java");
+        index.flush();
+        index.update("/src/Other.java", 1, "java", "void other() {}");
+        index.flush();
+
+        Assert.assertEquals(2, index.getSegmentCount());
+        Assert.assertTrue(index.search("handler1", "java", 5).isEmpty());
+        Assert.assertEquals(50, index.getSnippetCount());
+    }
+
+    @Test
+    public void shadowedVersionsDoNotAffectScores() throws IOException {
+        SnippetIndex shadowed = SnippetIndex.open(directory());
+        shadowed.update("/src/a.py", 1, "python", "def load_config():\n    pass");
+        shadowed.update("/src/b.py", 1, "python", "def load_users():\n    return users");
+        shadowed.flush();
+        shadowed.update("/src/b.py", 2, "python", "def save_users():\n    return users");
+        shadowed.flush();
+        SnippetIndex fresh = SnippetIndex.open(directory());
+        fresh.update("/src/a.py", 1, "python", "def load_config():\n    pass");
+        fresh.update("/src/b.py", 2, "python", "def save_users():\n    return users");
+        fresh.flush();
+
+        Assert.assertEquals(2, shadowed.getSegmentCount());
+        Assert.assertEquals(fresh.search("load", "python", 5).get(0).getScore(), shadowed.search("load", "python", 5).get(0).getScore(), 1e-6);
+    }
+
+    @Test
+    public void splitsIntoOverlappingWindows() {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 20; line++) {
+            text.append("line").append(line).append('\n');
+        }
+        List<Snippet> snippets = new ArrayList<>();
+        SnippetIndex.split("/a.txt", null, text.toString(), snippets);
+
+        Assert.assertEquals(2, snippets.size());
+        Assert.assertEquals(0, snippets.get(0).getStartLine());
+        Assert.assertEquals(11, snippets.get(0).getEndLine());
+        Assert.assertEquals(8, snippets.get(1).getStartLine());
+        Assert.assertEquals(19, snippets.get(1).getEndLine());
+    }
+
+    private File directory() throws IOException {
+        File directory = Files.createTempDirectory("snippets").toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+}
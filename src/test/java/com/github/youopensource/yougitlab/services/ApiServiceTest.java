@@ -0,0 +1,57 @@
+package com.github.youopensource.yougitlab.services;
+
+import com.github.youopensource.yougitlab.data.Result;
+import com.github.youopensource.yougitlab.data.Solution;
+import com.github.youopensource.yougitlab.data.SolutionRequest;
+import com.github.youopensource.yougitlab.data.SolutionResult;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ApiServiceTest {
+
+    @Test
+    public void appendsRemoteSolutionsBelowLocalOnes() {
+        List<String> events = search(Observable.just(new Solution(0, "local snippet", "Main.kt:1", null)));
+
+        Assert.assertEquals(List.of("local snippet replacing", "remote snippet appended"), events);
+    }
+
+    @Test
+    public void showsLoadingBeforeFirstRemoteSolution() {
+        List<String> events = search(Observable.empty());
+
+        Assert.assertEquals(List.of("loading", "remote snippet replacing"), events);
+    }
+
+    private static List<String> search(Observable<Solution> local) {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Disposable loading = ApiService.INSTANCE.getLoadingObservable().subscribe(value -> events.add("loading"));
+        // the loading state of a previous search is replayed on subscription
+        events.clear();
+        ApiService.INSTANCE.solutions(request(), 1, local, acquire -> acquire.invoke() ? Observable.just(result()) : Observable.empty())
+                .blockingForEach(result -> events.add(describe(result)));
+        loading.dispose();
+        return new ArrayList<>(events);
+    }
+
+    private static String describe(SolutionResult result) {
+        return result.getSolutions().get(0).getCodeSnippet() + (result.getAppend() ? " appended" : " replacing");
+    }
+
+    private static SolutionRequest request() {
+        return new SolutionRequest("val answer = 42", "kotlin", false, null);
+    }
+
+    private static Result result() {
+        Result result = new Result();
+        result.setCodeSnippet("remote snippet");
+        result.setUrl("https://example.com");
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.youopensource.yougitlab.services;
+
+import com.github.youopensource.yougitlab.data.SolutionRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SuggestionThrottleTest {
+
+    private final long[] now = {1_000_000};
+    private final SuggestionThrottle throttle = new SuggestionThrottle(30, () -> now[0]);
+
+    @Test
+    public void selectionIsSentQuickly() {
+        Assert.assertEquals(SuggestionThrottle.SELECTION_DELAY_MILLIS, throttle.delayMillis(selection()));
+    }
+
+    @Test
+    public void caretDriftBacksOffWhileNavigating() {
+        Assert.assertEquals(700, throttle.delayMillis(caret()));
+        now[0] += 100;
+        Assert.assertEquals(700, throttle.delayMillis(caret()));
+        now[0] += 100;
+        Assert.assertEquals(1_000, throttle.delayMillis(caret()));
+        now[0] += 100;
+        Assert.assertEquals(1_300, throttle.delayMillis(caret()));
+    }
+
+    @Test
+    public void backoffIsCappedAt2500Millis() {
+        long delay = 0;
+        for (int i = 0; i < 20; i++) {
+            delay = throttle.delayMillis(caret());
+            now[0] += 50;
+        }
+        Assert.assertEquals(SuggestionThrottle.MAX_DELAY_MILLIS, delay);
+    }
+
+    @Test
+    public void backoffEndsWhenUserStopsNavigating() {
+        for (int i = 0; i < 10; i++) {
+            throttle.delayMillis(caret());
+            now[0] += 50;
+        }
+        now[0] += 2_001;
+        Assert.assertEquals(SuggestionThrottle.CARET_DELAY_MILLIS, throttle.delayMillis(caret()));
+    }
+
+    @Test
+    public void selectionResetsBackoff() {
+        for (int i = 0; i < 10; i++) {
+            throttle.delayMillis(caret());
+            now[0] += 50;
+        }
+        throttle.delayMillis(selection());
+        Assert.assertEquals(SuggestionThrottle.CARET_DELAY_MILLIS, throttle.delayMillis(caret()));
+    }
+
+    @Test
+    public void budgetAllows30RequestsPerMinute() {
+        for (int i = 0; i < 30; i++) {
+            Assert.assertTrue(throttle.tryAcquire());
+            now[0] += 1_000;
+        }
+        Assert.assertFalse(throttle.tryAcquire());
+        Assert.assertEquals(30, throttle.usedInLastMinute());
+
+        // first request of the minute drops out of the window
+        now[0] += 30_001;
+        Assert.assertEquals(29, throttle.usedInLastMinute());
+        Assert.assertTrue(throttle.tryAcquire());
+        Assert.assertFalse(throttle.tryAcquire());
+    }
+
+    private static SolutionRequest caret() {
+        return new SolutionRequest("val answer = 42", "kotlin", false, null);
+    }
+
+    private static SolutionRequest selection() {
+        return new SolutionRequest("val answer = 42", "kotlin", true, null);
+    }
+}